@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+// Заменяет стандартное условие Logbook: в лог попадает только выборка запросов,
+// для остальных тела запроса и ответа не буферизуются вовсе
+@Slf4j
+@Component("requestCondition")
+public class LogbookSampler implements Predicate<HttpRequest> {
+
+    private volatile double sampleRate;
+
+    public LogbookSampler(@Value("${filmorate.logbook.sample-rate:0.01}") double sampleRate) {
+        setSampleRate(sampleRate);
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        double rate = sampleRate;
+        if (rate <= 0) {
+            return false;
+        }
+        return rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        log.info("Доля запросов, попадающих в лог Logbook: {}", this.sampleRate);
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    // по умолчанию планировщик однопоточный, и долгий пересчёт влиятельности задерживал бы
+    // снимок популярных фильмов, сверку сводки и сжатие журнала изменений
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${filmorate.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, poolSize));
+        scheduler.setThreadNamePrefix("filmorate-scheduling-");
+        return scheduler;
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.StringJoiner;
+
+// Сильные ETag из счётчиков версий. Тег вычисляется до загрузки данных, и та же версия передаётся в загрузку:
+// склеенные запросы с этой версией начинаются только после записи, которая её выставила, поэтому данные
+// не старше тега. Если следующая запись успеет пройти между ними, клиент получит новые данные со старым тегом
+// и просто перезапросит их
+final class ETags {
+
+    // счётчики версий живут в памяти и после перезапуска начинаются заново, время запуска отличает их
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    // справочники жанров и рейтингов меняются только вместе с выкладкой
+    static final CacheControl REFERENCE_CACHE = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
+    private ETags() {
+    }
+
+    // true — у клиента актуальная версия, ответ 304 уже выставлен и тело строить не нужно.
+    // JSON и CBOR одного ресурса — разные представления, поэтому и теги у них разные
+    static boolean checkNotModified(WebRequest request, Object... parts) {
+        if (request instanceof NativeWebRequest) {
+            HttpServletResponse response = ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class);
+            if (response != null) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            }
+        }
+        StringJoiner tag = new StringJoiner("-", "\"", "\"");
+        tag.add(EPOCH);
+        for (Object part : parts) {
+            tag.add(String.valueOf(part));
+        }
+        if (prefersCbor(request)) {
+            tag.add("cbor");
+        }
+        return request.checkNotModified(tag.toString());
+    }
+
+    // выберет ли согласование содержимого CBOR: JSON-конвертер стоит первым и побеждает при равном выборе
+    static boolean prefersCbor(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || !accept.contains("cbor")) {
+            return false;
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(types);
+            for (MediaType type : types) {
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return false;
+                }
+                if (type.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
+}
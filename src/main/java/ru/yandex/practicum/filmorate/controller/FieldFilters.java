@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import ru.yandex.practicum.filmorate.model.EntityField;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.UserField;
+
+import java.util.Set;
+
+final class FieldFilters {
+
+    private FieldFilters() {
+    }
+
+    static MappingJacksonValue films(Object body, Set<FilmField> fields) {
+        return filter(body, "filmFields", fields);
+    }
+
+    static MappingJacksonValue users(Object body, Set<UserField> fields) {
+        return filter(body, "userFields", fields);
+    }
+
+    private static MappingJacksonValue filter(Object body, String filterId, Set<? extends EntityField> fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        value.setFilters(new SimpleFilterProvider()
+                .addFilter(filterId, SimpleBeanPropertyFilter.filterOutAllExcept(EntityField.jsonNames(fields)))
+                .setFailOnUnknownId(false));
+        return value;
+    }
+}
@@ -1,24 +1,55 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmStats;
+import ru.yandex.practicum.filmorate.model.PopularFilms;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 
 import javax.validation.Valid;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @RestController
 public class FilmController {
 
     private final FilmService filmService;
+    private final FilmResponseCache filmResponseCache;
 
     @GetMapping("/films")
     public List<Film> get() {
         return filmService.get();
     }
 
+    @GetMapping(value = "/films", params = {"fields", "!ids"})
+    public MappingJacksonValue get(@RequestParam String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.get(filmFields), filmFields);
+    }
+
+    @GetMapping(value = "/films", params = "ids")
+    public MappingJacksonValue getFilmsByIds(@RequestParam List<Integer> ids,
+                                             @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getFilmsByIds(ids, filmFields), filmFields);
+    }
+
     @PostMapping(value = "/films")
     public Film create(@Valid @RequestBody Film film) {
         return filmService.create(film);
@@ -30,8 +61,35 @@ public class FilmController {
     }
 
     @GetMapping("/films/{id}")
-    public Film getFilmById(@PathVariable("id") Integer filmId) {
-        return filmService.getFilmById(filmId);
+    public ResponseEntity<byte[]> getFilmById(@PathVariable("id") Integer filmId, WebRequest request) {
+        long version = filmService.getFilmVersion(filmId);
+        if (ETags.checkNotModified(request, version)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(filmResponseCache.getFilm(filmId, version));
+    }
+
+    // готовый JSON из кэша подходит только JSON-клиентам, CBOR сериализуется обычным конвертером
+    @GetMapping(value = "/films/{id}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public Film getFilmByIdCbor(@PathVariable("id") Integer filmId, WebRequest request) {
+        long version = filmService.getFilmVersion(filmId);
+        if (ETags.checkNotModified(request, version)) {
+            return null;
+        }
+        return filmService.getFilmById(filmId, FilmField.ALL, version);
+    }
+
+    @GetMapping(value = "/films/{id}", params = "fields")
+    public MappingJacksonValue getFilmById(@PathVariable("id") Integer filmId, @RequestParam String fields,
+                                           WebRequest request) {
+        long version = filmService.getFilmVersion(filmId);
+        if (ETags.checkNotModified(request, version)) {
+            return null;
+        }
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getFilmById(filmId, filmFields, version), filmFields);
     }
 
     @PutMapping("/films/{id}/like/{userId}")
@@ -44,8 +102,133 @@ public class FilmController {
         filmService.deleteLike(filmId, userId);
     }
 
+    @GetMapping("/films/{id}/likes")
+    public List<Integer> getLikes(@PathVariable("id") Integer filmId,
+                                  @RequestParam(defaultValue = "0", required = false) Integer after,
+                                  @RequestParam(defaultValue = "100", required = false) Integer size) {
+        return filmService.getLikes(filmId, after, size);
+    }
+
+    @GetMapping("/films/changes")
+    public MappingJacksonValue getChanges(@RequestParam(defaultValue = "0", required = false) Long since,
+                                          @RequestParam(defaultValue = "100", required = false) Integer size,
+                                          @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getChanges(since, size, filmFields), filmFields);
+    }
+
     @GetMapping("/films/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count) {
-        return filmService.getPopularFilms(count);
+    public ResponseEntity<byte[]> getPopularFilms(@RequestParam(defaultValue = "10", required = false) Integer count,
+                                                  @RequestParam(required = false) Integer genreId,
+                                                  @RequestParam(required = false) Integer year,
+                                                  WebRequest request) {
+        if (ETags.checkNotModified(request, filmService.getCatalogueVersion(), popularBuiltAt())) {
+            return null;
+        }
+        FilmResponseCache.Rendered popular = filmResponseCache.getPopular(count, genreId, year);
+        return withAge(popular.getBuiltAt())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(popular.getJson());
+    }
+
+    @GetMapping(value = "/films/popular", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<List<Film>> getPopularFilmsCbor(
+            @RequestParam(defaultValue = "10", required = false) Integer count,
+            @RequestParam(required = false) Integer genreId, @RequestParam(required = false) Integer year,
+            WebRequest request) {
+        if (ETags.checkNotModified(request, filmService.getCatalogueVersion(), popularBuiltAt())) {
+            return null;
+        }
+        PopularFilms popular = filmService.getPopularFilms(count, genreId, year, FilmField.ALL);
+        return withAge(popular.getBuiltAt()).body(popular.getFilms());
+    }
+
+    @GetMapping(value = "/films/popular", params = "fields")
+    public ResponseEntity<MappingJacksonValue> getPopularFilms(
+            @RequestParam(defaultValue = "10", required = false) Integer count,
+            @RequestParam(required = false) Integer genreId, @RequestParam(required = false) Integer year,
+            @RequestParam String fields, WebRequest request) {
+        if (ETags.checkNotModified(request, filmService.getCatalogueVersion(), popularBuiltAt())) {
+            return null;
+        }
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        PopularFilms popular = filmService.getPopularFilms(count, genreId, year, filmFields);
+        return withAge(popular.getBuiltAt()).body(FieldFilters.films(popular.getFilms(), filmFields));
+    }
+
+    @GetMapping("/films/trending")
+    public List<Film> getTrendingFilms(@RequestParam(defaultValue = "7d", required = false) String window,
+                                       @RequestParam(defaultValue = "10", required = false) Integer count) {
+        return filmService.getTrendingFilms(window, count, FilmField.ALL);
+    }
+
+    @GetMapping(value = "/films/trending", params = "fields")
+    public MappingJacksonValue getTrendingFilms(@RequestParam(defaultValue = "7d", required = false) String window,
+                                                @RequestParam(defaultValue = "10", required = false) Integer count,
+                                                @RequestParam String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getTrendingFilms(window, count, filmFields), filmFields);
+    }
+
+    @GetMapping("/films/{id}/similar")
+    public MappingJacksonValue getSimilarFilms(@PathVariable("id") Integer filmId,
+                                               @RequestParam(defaultValue = "10", required = false) Integer count,
+                                               @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getSimilarFilms(filmId, count, filmFields), filmFields);
+    }
+
+    @GetMapping("/stats/films")
+    public FilmStats getStats() {
+        return filmService.getStats();
+    }
+
+    @GetMapping("/stats/films/requests")
+    public Map<String, Map<String, SingleFlight.Stats>> getRequestStats() {
+        return filmService.getRequestStats();
+    }
+
+    @GetMapping("/films/suggest")
+    public List<Suggestion> suggest(@RequestParam String prefix,
+                                    @RequestParam(defaultValue = "10", required = false) Integer limit) {
+        return filmService.suggest(prefix, limit);
+    }
+
+    @GetMapping("/films/search")
+    public MappingJacksonValue search(@RequestParam(required = false) String q,
+                                      @RequestParam(required = false) Set<Integer> genre,
+                                      @RequestParam(required = false) Set<Integer> mpa,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                      LocalDate releasedFrom,
+                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+                                      LocalDate releasedTo,
+                                      @RequestParam(required = false) Integer minDuration,
+                                      @RequestParam(required = false) Integer minLikes,
+                                      @RequestParam(defaultValue = "100", required = false) Integer count,
+                                      @RequestParam(required = false) String fields) {
+        FilmFilter filter = FilmFilter.builder()
+                .genres(genre)
+                .mpa(mpa)
+                .releasedFrom(releasedFrom)
+                .releasedTo(releasedTo)
+                .minDuration(minDuration)
+                .minLikes(minLikes)
+                .build();
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.search(q, filter, count, filmFields), filmFields);
+    }
+
+    // список из снимка меняется при его пересчёте, остальные — при любом изменении каталога
+    private long popularBuiltAt() {
+        Instant builtAt = filmService.getPopularSnapshotBuiltAt();
+        return builtAt == null ? 0 : builtAt.toEpochMilli();
+    }
+
+    // возраст снимка популярных фильмов: в секундах в стандартном Age и в миллисекундах в X-Snapshot-Age-Ms
+    private static ResponseEntity.BodyBuilder withAge(Instant builtAt) {
+        long ageMillis = Math.max(0, Duration.between(builtAt, Instant.now()).toMillis());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AGE, String.valueOf(ageMillis / 1000))
+                .header("X-Snapshot-Age-Ms", String.valueOf(ageMillis));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.PopularFilms;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Готовый JSON горячих фильмов и списков популярных: попадание в кэш отдаёт сохранённые байты без обхода Film
+// Jackson'ом. Фильм сбрасывается событиями его изменения и лайков, а версия хранилища, прочитанная до загрузки
+// и перепроверенная после рендера, не даёт закэшировать данные, устаревшие за время рендера. Популярные кэшируются только из снимка
+// и живут до его пересчёта
+@Component
+public class FilmResponseCache {
+
+    private final FilmService filmService;
+    private final ObjectWriter writer;
+    private final int maxFilms;
+    private final Map<Integer, Rendered> films = new ConcurrentHashMap<>();
+    private final Map<Integer, Rendered> popular = new ConcurrentHashMap<>(); // count -> список из снимка
+
+    @Autowired
+    public FilmResponseCache(FilmService filmService, ObjectMapper objectMapper,
+                             @Value("${filmorate.render-cache.max-films:10000}") int maxFilms) {
+        this.filmService = filmService;
+        this.writer = objectMapper.writer();
+        this.maxFilms = maxFilms;
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        films.remove(event.getFilm().getId());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        films.remove(event.getFilmId());
+    }
+
+    // version — версия, прочитанная до загрузки (та же, что в ETag); тело загружается не старше её
+    // и сохраняется, только если за время рендера фильм не изменился
+    public byte[] getFilm(int filmId, long version) {
+        Rendered cached = films.get(filmId);
+        if (cached != null && cached.version == version) {
+            return cached.json;
+        }
+        byte[] json = render(filmService.getFilmById(filmId, FilmField.ALL, version));
+        if (filmService.getFilmVersion(filmId) != version) {
+            return json;
+        }
+        if (films.size() >= maxFilms) {
+            // место освобождается за счёт произвольного фильма: горячие быстро вернутся в кэш
+            Iterator<Integer> ids = films.keySet().iterator();
+            if (ids.hasNext()) {
+                films.remove(ids.next());
+            }
+        }
+        films.put(filmId, new Rendered(version, null, json));
+        return json;
+    }
+
+    public Rendered getPopular(int count, Integer genreId, Integer year) {
+        Instant snapshotBuiltAt = genreId == null && year == null ? filmService.getPopularSnapshotBuiltAt() : null;
+        Rendered cached = snapshotBuiltAt == null ? null : popular.get(count);
+        if (cached != null && cached.builtAt.equals(snapshotBuiltAt)) {
+            return cached;
+        }
+        PopularFilms films = filmService.getPopularFilms(count, genreId, year, FilmField.ALL);
+        Rendered rendered = new Rendered(0, films.getBuiltAt(), render(films.getFilms()));
+        if (snapshotBuiltAt != null && Objects.equals(snapshotBuiltAt, films.getBuiltAt())) {
+            popular.put(count, rendered);
+        }
+        return rendered;
+    }
+
+    private byte[] render(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static class Rendered {
+        private final long version;
+        private final Instant builtAt;
+        private final byte[] json;
+
+        Rendered(long version, Instant builtAt, byte[] json) {
+            this.version = version;
+            this.builtAt = builtAt;
+            this.json = json;
+        }
+
+        Instant getBuiltAt() {
+            return builtAt;
+        }
+
+        byte[] getJson() {
+            return json;
+        }
+    }
+}
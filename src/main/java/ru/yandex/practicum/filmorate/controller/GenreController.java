@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -13,13 +16,22 @@ public class GenreController {
 
     private final GenreService genreService;
 
+    // справочник не меняется во время работы, поэтому тег зависит только от запуска
+    private static final String REFERENCE = "genres";
+
     @GetMapping("/genres")
-    public List<Genre> findAll() {
-        return genreService.findAll();
+    public ResponseEntity<List<Genre>> findAll(WebRequest request) {
+        if (ETags.checkNotModified(request, REFERENCE)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.REFERENCE_CACHE).build();
+        }
+        return ResponseEntity.ok().cacheControl(ETags.REFERENCE_CACHE).body(genreService.findAll());
     }
 
     @GetMapping("/genres/{id}")
-    public Genre findGenreById(@PathVariable("id") Integer genreId) {
-        return genreService.findGenreById(genreId);
+    public ResponseEntity<Genre> findGenreById(@PathVariable("id") Integer genreId, WebRequest request) {
+        if (ETags.checkNotModified(request, REFERENCE)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.REFERENCE_CACHE).build();
+        }
+        return ResponseEntity.ok().cacheControl(ETags.REFERENCE_CACHE).body(genreService.findGenreById(genreId));
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Rating;
 import ru.yandex.practicum.filmorate.service.RatingService;
 
@@ -13,13 +16,22 @@ public class RatingController {
 
     private final RatingService ratingService;
 
+    // справочник не меняется во время работы, поэтому тег зависит только от запуска
+    private static final String REFERENCE = "mpa";
+
     @GetMapping("/mpa")
-    public List<Rating> findAll() {
-        return ratingService.findAll();
+    public ResponseEntity<List<Rating>> findAll(WebRequest request) {
+        if (ETags.checkNotModified(request, REFERENCE)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.REFERENCE_CACHE).build();
+        }
+        return ResponseEntity.ok().cacheControl(ETags.REFERENCE_CACHE).body(ratingService.findAll());
     }
 
     @GetMapping("/mpa/{id}")
-    public Rating findRatingById(@PathVariable("id") Integer ratingId) {
-        return ratingService.findRatingById(ratingId);
+    public ResponseEntity<Rating> findRatingById(@PathVariable("id") Integer ratingId, WebRequest request) {
+        if (ETags.checkNotModified(request, REFERENCE)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(ETags.REFERENCE_CACHE).build();
+        }
+        return ResponseEntity.ok().cacheControl(ETags.REFERENCE_CACHE).body(ratingService.findRatingById(ratingId));
     }
 }
\ No newline at end of file
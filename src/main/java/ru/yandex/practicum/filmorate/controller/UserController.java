@@ -2,12 +2,23 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.FeedPage;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.model.UserPath;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RequiredArgsConstructor
 @RestController
@@ -15,6 +26,7 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
 
     @GetMapping("/users")
     @ResponseBody
@@ -22,6 +34,19 @@ public class UserController {
         return userService.get();
     }
 
+    @GetMapping(value = "/users", params = {"fields", "!ids"})
+    public MappingJacksonValue get(@RequestParam String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.get(userFields), userFields);
+    }
+
+    @GetMapping(value = "/users", params = "ids")
+    public MappingJacksonValue getUsersByIds(@RequestParam List<Integer> ids,
+                                             @RequestParam(required = false) String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getUsersByIds(ids, userFields), userFields);
+    }
+
     @PostMapping(value = "/users")
     public User create(@Valid @RequestBody User user) {
         return userService.create(user);
@@ -32,11 +57,50 @@ public class UserController {
         return userService.update(user);
     }
 
+    @GetMapping("/users/suggest")
+    public List<Suggestion> suggest(@RequestParam String prefix,
+                                    @RequestParam(defaultValue = "10", required = false) Integer limit) {
+        return userService.suggest(prefix, limit);
+    }
+
+    @GetMapping("/users/changes")
+    public MappingJacksonValue getChanges(@RequestParam(defaultValue = "0", required = false) Long since,
+                                          @RequestParam(defaultValue = "100", required = false) Integer size,
+                                          @RequestParam(required = false) String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getChanges(since, size, userFields), userFields);
+    }
+
+    @GetMapping("/stats/users/requests")
+    public Map<String, Map<String, SingleFlight.Stats>> getRequestStats() {
+        return userService.getRequestStats();
+    }
+
+    @GetMapping("/users/top")
+    public MappingJacksonValue getTopUsers(@RequestParam(defaultValue = "10", required = false) Integer count,
+                                           @RequestParam(required = false) String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getTopUsers(count, userFields), userFields);
+    }
+
     @GetMapping("/users/{id}")
-    public User getUserById(@PathVariable("id") Integer userId) {
+    public User getUserById(@PathVariable("id") Integer userId, WebRequest request) {
+        if (ETags.checkNotModified(request, userService.getUserVersion(userId))) {
+            return null;
+        }
         return userService.getUserById(userId);
     }
 
+    @GetMapping(value = "/users/{id}", params = "fields")
+    public MappingJacksonValue getUserById(@PathVariable("id") Integer userId, @RequestParam String fields,
+                                           WebRequest request) {
+        if (ETags.checkNotModified(request, userService.getUserVersion(userId))) {
+            return null;
+        }
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getUserById(userId, userFields), userFields);
+    }
+
     @PutMapping("/users/{id}/friends/{friendId}")
     public List<User> addToFriends(@PathVariable("id") Integer userId, @PathVariable Integer friendId) {
         return userService.addToFriends(userId, friendId);
@@ -52,8 +116,57 @@ public class UserController {
         return userService.getFriends(userId);
     }
 
+    @GetMapping(value = "/users/{id}/friends", params = "fields")
+    public MappingJacksonValue getFriends(@PathVariable("id") Integer userId, @RequestParam String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getFriends(userId, userFields), userFields);
+    }
+
+    @GetMapping("/users/{id}/friends/suggestions")
+    public MappingJacksonValue getFriendSuggestions(@PathVariable("id") Integer userId,
+                                                    @RequestParam(defaultValue = "10", required = false) Integer count,
+                                                    @RequestParam(required = false) String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getFriendSuggestions(userId, count, userFields), userFields);
+    }
+
+    @GetMapping("/users/{id}/feed")
+    public FeedPage getFeed(@PathVariable("id") Integer userId, @RequestParam(required = false) Long cursor,
+                            @RequestParam(defaultValue = "20", required = false) Integer count) {
+        return userService.getFeed(userId, cursor, count);
+    }
+
+    @GetMapping("/users/{id}/likes")
+    public List<Integer> getLikedFilms(@PathVariable("id") Integer userId,
+                                       @RequestParam(defaultValue = "0", required = false) Integer after,
+                                       @RequestParam(defaultValue = "100", required = false) Integer size) {
+        return filmService.getLikedFilms(userId, after, size);
+    }
+
+    @GetMapping("/users/{id}/recommendations")
+    public MappingJacksonValue getRecommendations(@PathVariable("id") Integer userId,
+                                                  @RequestParam(defaultValue = "10", required = false) Integer count,
+                                                  @RequestParam(required = false) String fields) {
+        Set<FilmField> filmFields = FilmField.parse(fields);
+        return FieldFilters.films(filmService.getRecommendations(userId, count, filmFields), filmFields);
+    }
+
+    @GetMapping("/users/{id}/path/{otherId}")
+    public UserPath getPath(@PathVariable("id") Integer userId, @PathVariable("otherId") Integer otherId,
+                            @RequestParam(defaultValue = "6", required = false) Integer maxDepth) {
+        return userService.getPath(userId, otherId, maxDepth);
+    }
+
     @GetMapping("/users/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable("id") Integer userId, @PathVariable("otherId") Integer friendId) {
         return userService.getCommonFriends(userId, friendId);
     }
+
+    @GetMapping(value = "/users/{id}/friends/common/{otherId}", params = "fields")
+    public MappingJacksonValue getCommonFriends(@PathVariable("id") Integer userId,
+                                                @PathVariable("otherId") Integer friendId,
+                                                @RequestParam String fields) {
+        Set<UserField> userFields = UserField.parse(fields);
+        return FieldFilters.users(userService.getCommonFriends(userId, friendId, userFields), userFields);
+    }
 }
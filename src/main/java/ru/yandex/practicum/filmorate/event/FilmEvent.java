@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.model.Film;
+
+// Фильм добавлен или изменён
+@Value
+public class FilmEvent {
+    Film film;
+    Operation operation;
+}
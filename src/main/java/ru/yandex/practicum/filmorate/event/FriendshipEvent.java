@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+
+// Пользователь добавил другого в друзья или удалил из друзей; публикуется, только если дружба действительно изменилась
+@Value
+public class FriendshipEvent {
+    int userId;
+    int friendId;
+    Operation operation;
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// Пользователь поставил или снял лайк; публикуется, только если набор лайков действительно изменился
+@Value
+public class LikeEvent {
+    int filmId;
+    int userId;
+    Operation operation;
+    Instant likedAt; // время постановки лайка, при снятии — время исходного лайка (null, если неизвестно)
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.event;
+
+public enum Operation {
+    ADD,
+    UPDATE,
+    REMOVE
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.event;
+
+import lombok.Value;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Пользователь добавлен или изменён
+@Value
+public class UserEvent {
+    User user;
+    Operation operation;
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+public class BatchResult<T> {
+    private List<T> items; // в порядке запрошенных id, null на месте ненайденных
+    private List<Integer> notFound; // запрошенные id, которых нет в базе
+
+    public static <T> BatchResult<T> of(List<Integer> ids, Map<Integer, T> found) {
+        List<T> items = new ArrayList<>(ids.size());
+        List<Integer> notFound = new ArrayList<>();
+        for (Integer id : ids) {
+            T item = found.get(id);
+            items.add(item);
+            if (item == null) {
+                notFound.add(id);
+            }
+        }
+        return BatchResult.<T>builder()
+                .items(items)
+                .notFound(notFound)
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ChangePage<T> {
+    private List<T> entities; // в порядке версий их последних изменений
+    private long version; // передаётся в since для следующего запроса
+    private boolean hasMore; // изменений после version больше, чем поместилось на страницу
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Запись журнала изменений: сущность с id изменилась в версии version
+@Data
+@Builder
+public class EntityChange {
+    private long version; // общий для фильмов и пользователей, строго возрастает в порядке записи
+    private EntityType type;
+    private int entityId;
+}
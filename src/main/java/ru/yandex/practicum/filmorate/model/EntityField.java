@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.model;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Поле сущности, которое клиент может запросить через ?fields=
+public interface EntityField {
+
+    String getJsonName();
+
+    // разбирает список полей вида "id,name,mpa"; пустой список означает все поля, id возвращается всегда
+    static <E extends Enum<E> & EntityField> Set<E> parse(Class<E> type, String fields, E idField) {
+        if (fields == null || fields.isBlank()) {
+            return Collections.unmodifiableSet(EnumSet.allOf(type));
+        }
+        Set<E> result = EnumSet.of(idField);
+        for (String name : fields.split(",")) {
+            String jsonName = name.trim();
+            if (jsonName.isEmpty()) {
+                continue;
+            }
+            E field = null;
+            for (E candidate : type.getEnumConstants()) {
+                if (candidate.getJsonName().equals(jsonName)) {
+                    field = candidate;
+                    break;
+                }
+            }
+            if (field == null) {
+                throw new ValidationException();
+            }
+            result.add(field);
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    static Set<String> jsonNames(Set<? extends EntityField> fields) {
+        Set<String> names = new LinkedHashSet<>();
+        for (EntityField field : fields) {
+            names.add(field.getJsonName());
+        }
+        return names;
+    }
+}
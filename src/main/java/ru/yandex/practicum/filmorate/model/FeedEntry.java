@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.event.Operation;
+
+import java.time.Instant;
+
+// Запись журнала действий: кто, что сделал и с каким фильмом или пользователем
+@Data
+@Builder
+public class FeedEntry {
+    private long id; // возрастает в порядке записи, служит курсором ленты
+    private int userId;
+    private FeedEventType type;
+    private Operation operation;
+    private int entityId; // id фильма для лайка, id друга для дружбы
+    private Instant timestamp;
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class FeedPage {
+    private List<FeedEntry> entries; // от новых к старым
+    private Long nextCursor; // передаётся в cursor для следующей страницы, null — записей больше нет
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.Builder;
 import lombok.Data;
 
@@ -10,6 +11,7 @@ import java.util.Set;
 
 @Data
 @Builder
+@JsonFilter("filmFields")
 public class Film {
     private int id;
     @NotNull
@@ -18,14 +20,7 @@ public class Film {
     private String description;
     private LocalDate releaseDate;
     private long duration;
-    private Set<Integer> likesByUsers; // список пользователей, кто поставил лайк
+    private int likeCount; // количество лайков, сами пользователи отдаются постранично через /films/{id}/likes
     private Set<Genre> genres;
     private Rating mpa;
-
-    public void addLike(Integer userId) {
-        this.likesByUsers.add(userId);
-    }
-    public void deleteLike(Integer userId) {
-        this.likesByUsers.remove(userId);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum FilmField implements EntityField {
+    ID("id"),
+    NAME("name"),
+    DESCRIPTION("description"),
+    RELEASE_DATE("releaseDate"),
+    DURATION("duration"),
+    LIKE_COUNT("likeCount"),
+    GENRES("genres"),
+    MPA("mpa");
+
+    public static final Set<FilmField> ALL = Collections.unmodifiableSet(EnumSet.allOf(FilmField.class));
+
+    private final String jsonName;
+
+    FilmField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    @Override
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    public static Set<FilmField> parse(String fields) {
+        return EntityField.parse(FilmField.class, fields, ID);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Условия поиска фильмов, незаданные (null или пустые) условия не применяются
+@Data
+@Builder
+public class FilmFilter {
+    private Set<Integer> genres; // любой из жанров
+    private Set<Integer> mpa; // любой из рейтингов
+    private LocalDate releasedFrom;
+    private LocalDate releasedTo;
+    private Integer minDuration;
+    private Integer minLikes;
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+// Сводка по каталогу; ключи — id жанра, id рейтинга MPA и год выхода
+@Data
+@Builder
+public class FilmStats {
+    private long films;
+    private Map<Integer, Long> filmsByGenre;
+    private Map<Integer, Double> averageDurationByMpa;
+    private Map<Integer, Long> likesByYear;
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class PopularFilms {
+    private List<Film> films;
+    private Instant builtAt; // момент расчёта списка, для снимка может отставать от текущего
+}
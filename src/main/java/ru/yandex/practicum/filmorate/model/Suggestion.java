@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Вариант автодополнения: id сущности и подставляемый текст
+@Data
+@Builder
+public class Suggestion {
+    private int id;
+    private String text;
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public enum UserField implements EntityField {
+    ID("id"),
+    EMAIL("email"),
+    LOGIN("login"),
+    NAME("name"),
+    BIRTHDAY("birthday"),
+    FRIENDS("friends");
+
+    public static final Set<UserField> ALL = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+
+    private final String jsonName;
+
+    UserField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    @Override
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    public static Set<UserField> parse(String fields) {
+        return EntityField.parse(UserField.class, fields, ID);
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// Кратчайшая цепочка знакомств между двумя пользователями
+@Data
+@Builder
+public class UserPath {
+    private Integer distance; // число рукопожатий, null — связь не найдена в пределах глубины поиска
+    private List<Integer> userIds; // от первого пользователя ко второму включительно
+}
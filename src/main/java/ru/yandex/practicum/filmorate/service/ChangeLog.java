@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ChangePage;
+import ru.yandex.practicum.filmorate.model.EntityChange;
+import ru.yandex.practicum.filmorate.model.EntityType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.storage.change.ChangeStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Журнал изменений для синхронизации клиентов: каждое создание, изменение, лайк и изменение дружбы получает
+// очередную версию. Клиент запрашивает сущности, изменённые после известной ему версии, и получает каждую один раз —
+// по последнему изменению. Записи, перекрытые более новыми изменениями той же сущности, периодически удаляются
+@Slf4j
+@Component
+public class ChangeLog {
+
+    static final int MAX_PAGE_SIZE = 500; // как у выборки по списку id, которой загружаются сущности страницы
+
+    private final ChangeStorage changeStorage;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+
+    @Autowired
+    public ChangeLog(@Qualifier("changeDbStorage") ChangeStorage changeStorage,
+                     @Qualifier("filmDbStorage") FilmStorage filmStorage,
+                     @Qualifier("userDbStorage") UserStorage userStorage) {
+        this.changeStorage = changeStorage;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    // сущности, созданные до появления журнала, попадают в него одной версией на каждую
+    @PostConstruct
+    void load() {
+        if (!changeStorage.hasChanges(EntityType.FILM)) {
+            record(EntityType.FILM, filmStorage.get(EnumSet.of(FilmField.ID)).stream()
+                    .map(Film::getId)
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        if (!changeStorage.hasChanges(EntityType.USER)) {
+            record(EntityType.USER, userStorage.get(EnumSet.of(UserField.ID)).stream()
+                    .map(User::getId)
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        record(EntityType.FILM, List.of(event.getFilm().getId()));
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        record(EntityType.FILM, List.of(event.getFilmId()));
+    }
+
+    @EventListener
+    public void onUser(UserEvent event) {
+        record(EntityType.USER, List.of(event.getUser().getId()));
+    }
+
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        record(EntityType.USER, List.of(event.getUserId()));
+    }
+
+    // id сущностей, изменённых после версии since, не больше size штук
+    public ChangePage<Integer> getChanges(EntityType type, long since, int size) {
+        if (since < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        List<EntityChange> changes = changeStorage.getChanges(type, since, size + 1);
+        boolean hasMore = changes.size() > size;
+        if (hasMore) {
+            changes = changes.subList(0, size);
+        }
+        return ChangePage.<Integer>builder()
+                .entities(changes.stream().map(EntityChange::getEntityId).collect(Collectors.toList()))
+                .version(changes.isEmpty() ? since : changes.get(changes.size() - 1).getVersion())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.changes.compact-interval-ms:600000}")
+    public void compact() {
+        changeStorage.compact();
+    }
+
+    // запись идёт под общей блокировкой: версия становится видна читателям только после всех меньших,
+    // иначе клиент, успевший прочитать большую версию, навсегда пропустил бы меньшую
+    private synchronized void record(EntityType type, List<Integer> entityIds) {
+        if (entityIds.isEmpty()) {
+            return;
+        }
+        long version = changeStorage.add(type, entityIds);
+        log.debug("Записаны изменения {} {}, версия {}", type, entityIds, version);
+    }
+}
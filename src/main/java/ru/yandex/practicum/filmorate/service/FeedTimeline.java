@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Кольцевой буфер последних записей ленты по возрастанию id; при переполнении вытесняются самые старые
+class FeedTimeline {
+
+    private final FeedEntry[] entries;
+    private int start; // позиция самой старой записи
+    private int size;
+
+    FeedTimeline(int capacity) {
+        entries = new FeedEntry[capacity];
+    }
+
+    synchronized void add(FeedEntry entry) {
+        if (size == entries.length) {
+            if (entry.getId() < get(0).getId()) {
+                return;
+            }
+            start = (start + 1) % entries.length;
+            size--;
+        }
+        // записи из параллельных запросов могут прийти не по порядку id, сдвигаем более новые
+        int position = size;
+        while (position > 0 && get(position - 1).getId() > entry.getId()) {
+            set(position, get(position - 1));
+            position--;
+        }
+        set(position, entry);
+        size++;
+    }
+
+    // не более limit записей с id меньше before, от новых к старым
+    synchronized List<FeedEntry> before(long before, int limit) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (get(middle).getId() < before) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<FeedEntry> page = new ArrayList<>(Math.min(limit, low));
+        for (int i = low - 1; i >= 0 && page.size() < limit; i--) {
+            page.add(get(i));
+        }
+        return page;
+    }
+
+    private FeedEntry get(int index) {
+        return entries[(start + index) % entries.length];
+    }
+
+    private void set(int index, FeedEntry entry) {
+        entries[(start + index) % entries.length] = entry;
+    }
+}
@@ -0,0 +1,329 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+// Вторичные индексы каталога фильмов для поиска по сочетанию условий: битовые карты по жанрам и рейтингам,
+// отсортированные массивы по дате выхода и продолжительности. Условия выполняются от самого избирательного,
+// следующие сужают уже найденное множество
+@Slf4j
+@Component
+public class FilmFilterIndex {
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet all = new BitSet();
+    private final Map<Integer, BitSet> byGenre = new HashMap<>();
+    private final Map<Integer, BitSet> byMpa = new HashMap<>();
+    private final SortedColumn releaseDays = new SortedColumn();
+    private final SortedColumn durations = new SortedColumn();
+    private final Map<Integer, Facts> facts = new HashMap<>(); // id фильма -> проиндексированные значения
+
+    @Autowired
+    public FilmFilterIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        List<Film> films = filmStorage.get(EnumSet.of(FilmField.ID, FilmField.RELEASE_DATE, FilmField.DURATION,
+                FilmField.GENRES, FilmField.MPA, FilmField.LIKE_COUNT));
+        films.forEach(this::put);
+        log.info("Построены индексы для поиска фильмов, фильмов: {}", films.size());
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        put(event.getFilm());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        lock.writeLock().lock();
+        try {
+            Facts filmFacts = facts.get(event.getFilmId());
+            if (filmFacts != null) {
+                filmFacts.likes = Math.max(0, filmFacts.likes + (event.getOperation() == Operation.REMOVE ? -1 : 1));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // id подходящих фильмов по возрастанию, не больше count
+    public List<Integer> find(FilmFilter filter, int count) {
+        lock.readLock().lock();
+        try {
+            BitSet result = null;
+            for (Condition condition : plan(filter)) {
+                result = condition.apply(result);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            if (result == null) {
+                result = all;
+            }
+            return result.stream()
+                    .limit(count)
+                    .boxed()
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // условия фильтра в порядке возрастания оценки числа подходящих фильмов
+    private List<Condition> plan(FilmFilter filter) {
+        List<Condition> conditions = new ArrayList<>();
+        if (filter.getGenres() != null && !filter.getGenres().isEmpty()) {
+            conditions.add(new AnyOf(byGenre, filter.getGenres()));
+        }
+        if (filter.getMpa() != null && !filter.getMpa().isEmpty()) {
+            conditions.add(new AnyOf(byMpa, filter.getMpa()));
+        }
+        if (filter.getReleasedFrom() != null || filter.getReleasedTo() != null) {
+            int from = filter.getReleasedFrom() == null ? Integer.MIN_VALUE : (int) filter.getReleasedFrom().toEpochDay();
+            int to = filter.getReleasedTo() == null ? Integer.MAX_VALUE : (int) filter.getReleasedTo().toEpochDay();
+            conditions.add(new Between(releaseDays, from, to, f -> f.releaseDay));
+        }
+        if (filter.getMinDuration() != null) {
+            conditions.add(new Between(durations, filter.getMinDuration(), Integer.MAX_VALUE, f -> f.duration));
+        }
+        if (filter.getMinLikes() != null) {
+            conditions.add(new MinLikes(filter.getMinLikes()));
+        }
+        conditions.sort(Comparator.comparingInt(Condition::estimate));
+        return conditions;
+    }
+
+    private void put(Film film) {
+        Facts filmFacts = new Facts();
+        filmFacts.genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        filmFacts.mpa = film.getMpa() == null ? 0 : film.getMpa().getId();
+        filmFacts.releaseDay = (int) film.getReleaseDate().toEpochDay();
+        filmFacts.duration = (int) Math.min(film.getDuration(), Integer.MAX_VALUE);
+        filmFacts.likes = film.getLikeCount();
+        int filmId = film.getId();
+        lock.writeLock().lock();
+        try {
+            Facts old = facts.remove(filmId);
+            if (old != null) {
+                old.genreIds.forEach(genreId -> byGenre.get(genreId).clear(filmId));
+                byMpa.get(old.mpa).clear(filmId);
+                releaseDays.remove(old.releaseDay, filmId);
+                durations.remove(old.duration, filmId);
+                filmFacts.likes = old.likes; // лайки изменённого фильма считаются по событиям
+            }
+            filmFacts.genreIds.forEach(genreId -> byGenre.computeIfAbsent(genreId, id -> new BitSet()).set(filmId));
+            byMpa.computeIfAbsent(filmFacts.mpa, id -> new BitSet()).set(filmId);
+            releaseDays.add(filmFacts.releaseDay, filmId);
+            durations.add(filmFacts.duration, filmId);
+            all.set(filmId);
+            facts.put(filmId, filmFacts);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Facts {
+        private Set<Integer> genreIds;
+        private int mpa;
+        private int releaseDay;
+        private int duration;
+        private int likes;
+    }
+
+    private interface Condition {
+        // оценка сверху числа фильмов, удовлетворяющих условию
+        int estimate();
+
+        // сужает candidates до подходящих фильмов; null означает весь каталог
+        BitSet apply(BitSet candidates);
+    }
+
+    // совпадение с любым из значений, объединение битовых карт
+    private static class AnyOf implements Condition {
+        private final List<BitSet> bitmaps = new ArrayList<>();
+
+        AnyOf(Map<Integer, BitSet> index, Set<Integer> values) {
+            values.forEach(value -> {
+                BitSet bitmap = index.get(value);
+                if (bitmap != null) {
+                    bitmaps.add(bitmap);
+                }
+            });
+        }
+
+        @Override
+        public int estimate() {
+            return bitmaps.stream().mapToInt(BitSet::cardinality).sum();
+        }
+
+        @Override
+        public BitSet apply(BitSet candidates) {
+            BitSet union = new BitSet();
+            bitmaps.forEach(union::or);
+            if (candidates == null) {
+                return union;
+            }
+            candidates.and(union);
+            return candidates;
+        }
+    }
+
+    // значение в отсортированном столбце попадает в [from, to]
+    private class Between implements Condition {
+        private final SortedColumn column;
+        private final int from;
+        private final int to;
+        private final ToIntFunction<Facts> value;
+
+        Between(SortedColumn column, int from, int to, ToIntFunction<Facts> value) {
+            this.column = column;
+            this.from = from;
+            this.to = to;
+            this.value = value;
+        }
+
+        @Override
+        public int estimate() {
+            return column.count(from, to);
+        }
+
+        @Override
+        public BitSet apply(BitSet candidates) {
+            if (candidates == null) {
+                return column.collect(from, to);
+            }
+            if (candidates.cardinality() < estimate()) {
+                // кандидатов меньше, чем значений в диапазоне: проверяем каждого напрямую
+                for (int filmId = candidates.nextSetBit(0); filmId >= 0; filmId = candidates.nextSetBit(filmId + 1)) {
+                    int filmValue = value.applyAsInt(facts.get(filmId));
+                    if (filmValue < from || filmValue > to) {
+                        candidates.clear(filmId);
+                    }
+                }
+                return candidates;
+            }
+            candidates.and(column.collect(from, to));
+            return candidates;
+        }
+    }
+
+    // лайки меняются слишком часто для отдельного индекса, поэтому условие проверяется последним
+    private class MinLikes implements Condition {
+        private final int minLikes;
+
+        MinLikes(int minLikes) {
+            this.minLikes = minLikes;
+        }
+
+        @Override
+        public int estimate() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public BitSet apply(BitSet candidates) {
+            BitSet result = candidates == null ? (BitSet) all.clone() : candidates;
+            for (int filmId = result.nextSetBit(0); filmId >= 0; filmId = result.nextSetBit(filmId + 1)) {
+                if (facts.get(filmId).likes < minLikes) {
+                    result.clear(filmId);
+                }
+            }
+            return result;
+        }
+    }
+
+    // Пары (значение, id фильма), упакованные в long и отсортированные по значению
+    private static class SortedColumn {
+        private long[] keys = new long[16];
+        private int size;
+
+        void add(int value, int filmId) {
+            long key = key(value, filmId);
+            int position = lowerBound(key);
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            System.arraycopy(keys, position, keys, position + 1, size - position);
+            keys[position] = key;
+            size++;
+        }
+
+        void remove(int value, int filmId) {
+            long key = key(value, filmId);
+            int position = lowerBound(key);
+            if (position < size && keys[position] == key) {
+                System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+                size--;
+            }
+        }
+
+        int count(int from, int to) {
+            return Math.max(0, upperBound(to) - lowerBound(key(from, 0)));
+        }
+
+        BitSet collect(int from, int to) {
+            BitSet result = new BitSet();
+            int end = upperBound(to);
+            for (int i = lowerBound(key(from, 0)); i < end; i++) {
+                result.set((int) keys[i]);
+            }
+            return result;
+        }
+
+        // индекс первого ключа со значением больше value
+        private int upperBound(int value) {
+            return value == Integer.MAX_VALUE ? size : lowerBound(key(value + 1, 0));
+        }
+
+        // индекс первого ключа, не меньшего key
+        private int lowerBound(long key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle] < key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private static long key(int value, int filmId) {
+            return ((long) value << 32) | (filmId & 0xffffffffL);
+        }
+    }
+}
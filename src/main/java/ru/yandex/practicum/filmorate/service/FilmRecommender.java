@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Рекомендации фильмов по схожести вкусов: соседи пользователя — те, у кого больше всего общих лайков
+// (мера Жаккара), кандидаты — их фильмы, которые пользователь ещё не лайкал. Результат кэшируется
+// и сбрасывается при изменении лайков самого пользователя
+@Slf4j
+@Component
+public class FilmRecommender {
+
+    static final int NEIGHBOURS = 20;
+    static final int MAX_RECOMMENDATIONS = 100;
+    static final int MAX_SCANNED_LIKES = 200_000; // ограничение работы на одного пользователя
+    private static final int PARALLEL_THRESHOLD = 20_000;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int CACHE_SIZE = 10_000;
+
+    private final LikeGraph likeGraph;
+    private final ForkJoinPool pool;
+    private final Map<Integer, List<Integer>> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Integer>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    @Autowired
+    public FilmRecommender(LikeGraph likeGraph, @Value("${filmorate.recommendations.parallelism:4}") int parallelism) {
+        this.likeGraph = likeGraph;
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors())));
+    }
+
+    // id рекомендованных фильмов, наиболее подходящие первыми
+    public List<Integer> recommend(int userId, int count) {
+        List<Integer> recommendations = cache.get(userId);
+        if (recommendations == null) {
+            // в кэш кладётся под той же блокировкой графа: лайк, изменивший граф после расчёта,
+            // сбросит запись уже после неё и не будет затёрт устаревшим списком
+            recommendations = likeGraph.read(() -> {
+                List<Integer> computed = compute(userId);
+                List<Integer> cached = cache.putIfAbsent(userId, computed);
+                return cached == null ? computed : cached;
+            });
+        }
+        return recommendations.size() > count ? recommendations.subList(0, count) : recommendations;
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        cache.remove(event.getUserId());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private List<Integer> compute(int userId) {
+        IntArraySet liked = likeGraph.likedFilms(userId);
+        if (liked.isEmpty()) {
+            return List.of();
+        }
+        int[] films = scannedFilms(liked);
+        IntIntMap overlap = countOverlap(userId, films);
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int[] neighbour : nearestNeighbours(liked, overlap)) {
+            double similarity = similarity(liked, neighbour);
+            IntArraySet neighbourFilms = likeGraph.likedFilms(neighbour[0]);
+            for (int i = 0; i < neighbourFilms.size(); i++) {
+                int filmId = neighbourFilms.get(i);
+                if (!liked.contains(filmId)) {
+                    scores.merge(filmId, similarity, Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_RECOMMENDATIONS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    // фильмы пользователя от менее популярных к более популярным, пока не исчерпан бюджет просмотренных лайков:
+    // редкие совпадения вкусов информативнее, а хиты со множеством лайков дороги и мало что говорят
+    private int[] scannedFilms(IntArraySet liked) {
+        int[] sorted = IntStream.of(liked.toArray())
+                .boxed()
+                .sorted(Comparator.comparingInt(filmId -> likeGraph.likers(filmId).size()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        long budget = 0;
+        int count = 0;
+        while (count < sorted.length && budget < MAX_SCANNED_LIKES) {
+            budget += likeGraph.likers(sorted[count++]).size();
+        }
+        return count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+    }
+
+    // число общих лайков с каждым пользователем, лайкавшим те же фильмы
+    private IntIntMap countOverlap(int userId, int[] films) {
+        long work = IntStream.of(films).mapToLong(filmId -> likeGraph.likers(filmId).size()).sum();
+        if (work < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+            return countOverlap(userId, films, 0, films.length);
+        }
+        int chunks = Math.min(films.length, pool.getParallelism() * CHUNKS_PER_THREAD);
+        List<IntIntMap> partial = pool.submit(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> countOverlap(userId, films,
+                        (int) ((long) films.length * chunk / chunks), (int) ((long) films.length * (chunk + 1) / chunks)))
+                .collect(Collectors.toList())).join();
+        IntIntMap overlap = new IntIntMap(partial.stream().mapToInt(IntIntMap::size).max().orElse(16));
+        partial.forEach(map -> map.forEach(overlap::add));
+        return overlap;
+    }
+
+    private IntIntMap countOverlap(int userId, int[] films, int from, int to) {
+        IntIntMap overlap = new IntIntMap();
+        for (int i = from; i < to; i++) {
+            IntArraySet likers = likeGraph.likers(films[i]);
+            for (int j = 0; j < likers.size(); j++) {
+                int otherId = likers.get(j);
+                if (otherId != userId) {
+                    overlap.add(otherId, 1);
+                }
+            }
+        }
+        return overlap;
+    }
+
+    // пары (id соседа, число общих лайков) с наибольшей мерой Жаккара
+    private List<int[]> nearestNeighbours(IntArraySet liked, IntIntMap overlap) {
+        Comparator<int[]> bySimilarity = Comparator.<int[]>comparingDouble(entry -> similarity(liked, entry))
+                .thenComparing(entry -> -entry[0]);
+        PriorityQueue<int[]> top = new PriorityQueue<>(bySimilarity);
+        overlap.forEach((otherId, common) -> {
+            top.add(new int[]{otherId, common});
+            if (top.size() > NEIGHBOURS) {
+                top.poll();
+            }
+        });
+        List<int[]> neighbours = new ArrayList<>(top);
+        neighbours.sort(bySimilarity.reversed());
+        return neighbours;
+    }
+
+    private double similarity(IntArraySet liked, int[] entry) {
+        return (double) entry[1] / (liked.size() + likeGraph.likedFilms(entry[0]).size() - entry[1]);
+    }
+}
@@ -2,54 +2,296 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.ChangePage;
+import ru.yandex.practicum.filmorate.model.EntityType;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmStats;
+import ru.yandex.practicum.filmorate.model.PopularFilms;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class FilmService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_IDS = 500;
+
     @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
 
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PopularFilmsSnapshot popularFilmsSnapshot;
+    private final TrendingFilms trendingFilms;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmFilterIndex filmFilterIndex;
+    private final FilmTextIndex filmTextIndex;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final FilmRecommender filmRecommender;
+    private final SimilarFilms similarFilms;
+    private final FilmStatistics filmStatistics;
+    private final ChangeLog changeLog;
+    private final SingleFlight<List<Object>, Film> filmFlights = new SingleFlight<>("getFilmById");
+    private final SingleFlight<List<Object>, List<Film>> popularFlights = new SingleFlight<>("getPopularFilms");
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, UserService userService) {
+    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage, UserService userService,
+                       ApplicationEventPublisher eventPublisher, PopularFilmsSnapshot popularFilmsSnapshot,
+                       TrendingFilms trendingFilms, PopularFilmsIndex popularFilmsIndex,
+                       FilmFilterIndex filmFilterIndex, FilmTextIndex filmTextIndex,
+                       FilmSuggestIndex filmSuggestIndex, FilmRecommender filmRecommender,
+                       SimilarFilms similarFilms, FilmStatistics filmStatistics,
+                       ChangeLog changeLog) {
         this.filmStorage = filmStorage;
         this.userService = userService;
+        this.eventPublisher = eventPublisher;
+        this.popularFilmsSnapshot = popularFilmsSnapshot;
+        this.trendingFilms = trendingFilms;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.filmFilterIndex = filmFilterIndex;
+        this.filmTextIndex = filmTextIndex;
+        this.filmSuggestIndex = filmSuggestIndex;
+        this.filmRecommender = filmRecommender;
+        this.similarFilms = similarFilms;
+        this.filmStatistics = filmStatistics;
+        this.changeLog = changeLog;
     }
 
     public List<Film> get() {
         return filmStorage.get();
     }
 
+    public List<Film> get(Set<FilmField> fields) {
+        return filmStorage.get(fields);
+    }
+
     public Film create(Film film) {
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        eventPublisher.publishEvent(new FilmEvent(created, Operation.ADD));
+        return created;
     }
 
     public Film update(Film film) {
-        return filmStorage.update(film);
+        Film updated = filmStorage.update(film);
+        eventPublisher.publishEvent(new FilmEvent(updated, Operation.UPDATE));
+        return updated;
     }
 
     public Film getFilmById(Integer filmId) {
-        return filmStorage.getFilmById(filmId);
+        return getFilmById(filmId, FilmField.ALL);
+    }
+
+    public Film getFilmById(Integer filmId, Set<FilmField> fields) {
+        return getFilmById(filmId, fields, filmStorage.getVersion(filmId));
+    }
+
+    // версия, прочитанная до загрузки, входит в ключ склейки: запрос, пришедший после записи, видит новую версию
+    // и не присоединяется к загрузке, начатой до неё, поэтому данные не старше version
+    public Film getFilmById(Integer filmId, Set<FilmField> fields, long version) {
+        return filmFlights.execute(List.of(filmId, fields), version, () -> filmStorage.getFilmById(filmId, fields));
+    }
+
+    public BatchResult<Film> getFilmsByIds(List<Integer> filmIds, Set<FilmField> fields) {
+        if (filmIds.isEmpty() || filmIds.size() > MAX_IDS) {
+            throw new ValidationException();
+        }
+        return BatchResult.of(filmIds, filmStorage.getFilmsByIds(new LinkedHashSet<>(filmIds), fields));
     }
 
     public void addLike(Integer filmId, Integer userId) {
-        userService.getUserById(userId);
-        filmStorage.addLike(filmId, userId);
+        userService.checkUserExists(userId);
+        if (filmStorage.addLike(filmId, userId)) {
+            eventPublisher.publishEvent(new LikeEvent(filmId, userId, Operation.ADD, Instant.now()));
+        }
     }
 
     public void deleteLike(Integer filmId, Integer userId) {
-        userService.getUserById(userId);
-        filmStorage.deleteLike(filmId, userId);
+        userService.checkUserExists(userId);
+        Instant likedAt = filmStorage.getLikedAt(filmId, userId);
+        if (filmStorage.deleteLike(filmId, userId)) {
+            eventPublisher.publishEvent(new LikeEvent(filmId, userId, Operation.REMOVE, likedAt));
+        }
+    }
+
+    public List<Integer> getLikes(Integer filmId, Integer afterUserId, Integer size) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return filmStorage.getLikes(filmId, afterUserId, size);
+    }
+
+    public List<Integer> getLikedFilms(Integer userId, Integer afterFilmId, Integer size) {
+        userService.checkUserExists(userId);
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return filmStorage.getLikedFilms(userId, afterFilmId, size);
     }
 
     public List<Film> getPopularFilms(Integer count) {
-        return filmStorage.getPopularFilms(count);
+        return getPopularFilms(count, FilmField.ALL);
+    }
+
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
+        return getPopularFilmsWithAge(count, fields).getFilms();
+    }
+
+    // популярные фильмы из снимка, а если снимок не покрывает count — из хранилища.
+    // Снимок хранит фильмы целиком, поэтому при выборке полей от него берётся только порядок,
+    // а сами фильмы читаются из хранилища с проекцией
+    public PopularFilms getPopularFilmsWithAge(Integer count, Set<FilmField> fields) {
+        PopularFilms snapshot = popularFilmsSnapshot.get(count);
+        if (snapshot != null && fields.containsAll(FilmField.ALL)) {
+            return snapshot;
+        }
+        if (snapshot != null) {
+            List<Integer> filmIds = snapshot.getFilms().stream()
+                    .map(Film::getId)
+                    .collect(Collectors.toList());
+            return PopularFilms.builder()
+                    .films(getFilmsInOrder(filmIds, fields))
+                    .builtAt(snapshot.getBuiltAt())
+                    .build();
+        }
+        List<Film> films = popularFlights.execute(List.of(count, fields), filmStorage.getVersion(),
+                () -> filmStorage.getPopularFilms(count, fields));
+        return PopularFilms.builder()
+                .films(films)
+                .builtAt(Instant.now())
+                .build();
+    }
+
+    // фильмы с наибольшим числом лайков за последние window, по убыванию
+    public List<Film> getTrendingFilms(String window, Integer count, Set<FilmField> fields) {
+        if (count <= 0) {
+            throw new ValidationException();
+        }
+        List<Integer> filmIds = trendingFilms.getTrending(TrendingFilms.parseWindow(window), Math.min(count, MAX_PAGE_SIZE));
+        return getFilmsInOrder(filmIds, fields);
+    }
+
+    // популярные фильмы жанра и/или года выхода из рейтингов по разделам
+    public PopularFilms getPopularFilms(Integer count, Integer genreId, Integer year, Set<FilmField> fields) {
+        if (genreId == null && year == null) {
+            return getPopularFilmsWithAge(count, fields);
+        }
+        if (count <= 0) {
+            throw new ValidationException();
+        }
+        List<Integer> filmIds = popularFilmsIndex.getPopular(genreId, year, Math.min(count, MAX_PAGE_SIZE));
+        return PopularFilms.builder()
+                .films(getFilmsInOrder(filmIds, fields))
+                .builtAt(Instant.now())
+                .build();
+    }
+
+    // фильмы, удовлетворяющие всем заданным условиям: без текста запроса по возрастанию id,
+    // с текстом — от наиболее релевантных
+    public List<Film> search(String query, FilmFilter filter, Integer count, Set<FilmField> fields) {
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        if (query == null || query.isBlank()) {
+            return getFilmsInOrder(filmFilterIndex.find(filter, count), fields);
+        }
+        List<Integer> filmIds = filmTextIndex.search(query);
+        if (!filter.equals(FilmFilter.builder().build())) {
+            Set<Integer> matching = new HashSet<>(filmFilterIndex.find(filter, Integer.MAX_VALUE));
+            filmIds.retainAll(matching);
+        }
+        return getFilmsInOrder(filmIds.size() > count ? filmIds.subList(0, count) : filmIds, fields);
+    }
+
+    // подсказки по началу названия, самые популярные первыми
+    public List<Suggestion> suggest(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            throw new ValidationException();
+        }
+        return filmSuggestIndex.suggest(prefix, limit);
+    }
+
+    // фильмы, которые понравились пользователям с похожими лайками и ещё не лайкнуты этим пользователем
+    public List<Film> getRecommendations(Integer userId, Integer count, Set<FilmField> fields) {
+        userService.checkUserExists(userId);
+        if (count <= 0) {
+            throw new ValidationException();
+        }
+        return getFilmsInOrder(filmRecommender.recommend(userId, count), fields);
+    }
+
+    // фильмы, которые чаще всего лайкают те же пользователи
+    public List<Film> getSimilarFilms(Integer filmId, Integer count, Set<FilmField> fields) {
+        checkFilmExists(filmId);
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException();
+        }
+        return getFilmsInOrder(similarFilms.getSimilar(filmId, count), fields);
+    }
+
+    public void checkFilmExists(Integer filmId) {
+        if (!filmStorage.exists(filmId)) {
+            throw new NotFoundException();
+        }
+    }
+
+    // версии для ETag, счётчики ведёт хранилище
+    public long getFilmVersion(Integer filmId) {
+        return filmStorage.getVersion(filmId);
+    }
+
+    public long getCatalogueVersion() {
+        return filmStorage.getVersion();
+    }
+
+    // популярные из снимка меняются только при его пересчёте
+    public Instant getPopularSnapshotBuiltAt() {
+        return popularFilmsSnapshot.getBuiltAt();
+    }
+
+    public FilmStats getStats() {
+        return filmStatistics.getStats();
+    }
+
+    // фильмы, изменённые после версии since, для синхронизации клиентов
+    public ChangePage<Film> getChanges(Long since, Integer size, Set<FilmField> fields) {
+        ChangePage<Integer> changes = changeLog.getChanges(EntityType.FILM, since, size);
+        return ChangePage.<Film>builder()
+                .entities(getFilmsInOrder(changes.getEntities(), fields))
+                .version(changes.getVersion())
+                .hasMore(changes.isHasMore())
+                .build();
+    }
+
+    private List<Film> getFilmsInOrder(List<Integer> filmIds, Set<FilmField> fields) {
+        Map<Integer, Film> films = filmStorage.getFilmsByIds(filmIds, fields);
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // склеенные одновременные запросы по ключам: имя запроса -> ключ -> счётчики
+    public Map<String, Map<String, SingleFlight.Stats>> getRequestStats() {
+        return Map.of(filmFlights.getName(), filmFlights.getReport(),
+                popularFlights.getName(), popularFlights.getReport());
     }
 }
@@ -0,0 +1,260 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.FilmStats;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+// Сводка по каталогу: число фильмов по жанрам, средняя продолжительность по рейтингам MPA и лайки по годам.
+// Счётчики меняются на разницу при создании и изменении фильма и при каждом лайке, запрос только копирует их.
+// Число лайков фильма при событии перечитывается из базы, поэтому повторное или запоздавшее событие
+// не сдвигает счётчик. Периодическая полная пересборка по базе сверяет счётчики и исправляет расхождения
+@Slf4j
+@Component
+public class FilmStatistics {
+
+    private static final Set<FilmField> FIELDS = Collections.unmodifiableSet(EnumSet.of(FilmField.ID,
+            FilmField.RELEASE_DATE, FilmField.DURATION, FilmField.LIKE_COUNT, FilmField.GENRES, FilmField.MPA));
+
+    private final FilmStorage filmStorage;
+    private final Object verifying = new Object(); // полные пересчёты не пересекаются
+    private State state = new State(new HashMap<>(), new Totals());
+    private Set<Integer> pending; // фильмы, затронутые событиями во время полного пересчёта
+
+    @Autowired
+    public FilmStatistics(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        verify();
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        apply(event.getFilm().getId(), current -> current.onFilm(event));
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        apply(event.getFilmId(), current -> current.onLikes(event.getFilmId(), this::readLikes));
+    }
+
+    public synchronized FilmStats getStats() {
+        return state.totals.toStats();
+    }
+
+    // полный параллельный пересчёт по базе; фильмы, затронутые событиями во время чтения, перед заменой
+    // перечитываются: прочитанное могло не включать их изменения или уже включать, и повтор событий
+    // учёл бы такие изменения дважды
+    @Scheduled(fixedDelayString = "${filmorate.stats.verify-interval-ms:3600000}",
+            initialDelayString = "${filmorate.stats.verify-interval-ms:3600000}")
+    public void verify() {
+        synchronized (verifying) {
+            synchronized (this) {
+                pending = new HashSet<>();
+            }
+            State recomputed;
+            try {
+                recomputed = recompute();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    pending = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                recomputed.refresh(pending, filmStorage.getFilmsByIds(pending, FIELDS));
+                pending = null;
+                if (!recomputed.totals.toStats().equals(state.totals.toStats()) && !state.entries.isEmpty()) {
+                    log.warn("Сводка по каталогу разошлась с базой и пересчитана заново");
+                }
+                state = recomputed;
+            }
+            log.info("Сводка по каталогу сверена с базой, фильмов: {}", recomputed.entries.size());
+        }
+    }
+
+    private synchronized void apply(int filmId, Consumer<State> change) {
+        change.accept(state);
+        if (pending != null) {
+            pending.add(filmId);
+        }
+    }
+
+    private Integer readLikes(int filmId) {
+        Film film = filmStorage.getFilmsByIds(List.of(filmId), EnumSet.of(FilmField.ID, FilmField.LIKE_COUNT))
+                .get(filmId);
+        return film == null ? null : film.getLikeCount();
+    }
+
+    private State recompute() {
+        List<Film> films = filmStorage.get(FIELDS);
+        Map<Integer, Entry> entries = films.parallelStream()
+                .map(film -> Entry.of(film, film.getLikeCount()))
+                .collect(Collectors.toConcurrentMap(entry -> entry.filmId, entry -> entry));
+        Totals totals = entries.values().parallelStream()
+                .collect(Totals::new, (sum, entry) -> sum.add(entry, 1), Totals::merge);
+        return new State(new HashMap<>(entries), totals);
+    }
+
+    // Учтённое в сводке состояние фильмов и счётчики по нему
+    private static class State {
+        private final Map<Integer, Entry> entries; // id фильма -> учтённое в счётчиках состояние
+        private final Totals totals;
+
+        State(Map<Integer, Entry> entries, Totals totals) {
+            this.entries = entries;
+            this.totals = totals;
+        }
+
+        void onFilm(FilmEvent event) {
+            Film film = event.getFilm();
+            Entry old = entries.remove(film.getId());
+            if (old != null) {
+                totals.add(old, -1);
+            }
+            if (event.getOperation() == Operation.REMOVE) {
+                return;
+            }
+            Entry entry = Entry.of(film, old == null ? film.getLikeCount() : old.likes);
+            totals.add(entry, 1);
+            entries.put(entry.filmId, entry);
+        }
+
+        void onLikes(int filmId, IntFunction<Integer> likes) {
+            Entry old = entries.get(filmId);
+            if (old == null) {
+                return;
+            }
+            Integer current = likes.apply(filmId);
+            if (current == null || current == old.likes) {
+                return;
+            }
+            Entry entry = old.withLikes(current);
+            totals.add(old, -1);
+            totals.add(entry, 1);
+            entries.put(entry.filmId, entry);
+        }
+
+        // заменяет учтённое состояние фильмов прочитанным из базы; отсутствующие там фильмы убираются
+        void refresh(Set<Integer> filmIds, Map<Integer, Film> films) {
+            for (Integer filmId : filmIds) {
+                Entry old = entries.remove(filmId);
+                if (old != null) {
+                    totals.add(old, -1);
+                }
+                Film film = films.get(filmId);
+                if (film != null) {
+                    Entry entry = Entry.of(film, film.getLikeCount());
+                    totals.add(entry, 1);
+                    entries.put(filmId, entry);
+                }
+            }
+        }
+    }
+
+    // Учтённые в сводке свойства фильма
+    private static class Entry {
+        private final int filmId;
+        private final Set<Integer> genreIds;
+        private final Integer mpaId;
+        private final long duration;
+        private final Integer year;
+        private final int likes;
+
+        private Entry(int filmId, Set<Integer> genreIds, Integer mpaId, long duration, Integer year, int likes) {
+            this.filmId = filmId;
+            this.genreIds = genreIds;
+            this.mpaId = mpaId;
+            this.duration = duration;
+            this.year = year;
+            this.likes = likes;
+        }
+
+        static Entry of(Film film, int likes) {
+            Set<Integer> genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                    .map(Genre::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            return new Entry(film.getId(), genreIds, film.getMpa() == null ? null : film.getMpa().getId(),
+                    film.getDuration(), film.getReleaseDate() == null ? null : film.getReleaseDate().getYear(), likes);
+        }
+
+        Entry withLikes(int likes) {
+            return new Entry(filmId, genreIds, mpaId, duration, year, likes);
+        }
+    }
+
+    // Счётчики сводки; sign = 1 учитывает фильм, -1 убирает его вклад
+    private static class Totals {
+        private long films;
+        private final Map<Integer, Long> filmsByGenre = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> filmsByMpa = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> durationByMpa = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> likesByYear = new ConcurrentHashMap<>();
+
+        void add(Entry entry, int sign) {
+            films += sign;
+            entry.genreIds.forEach(genreId -> merge(filmsByGenre, genreId, sign));
+            if (entry.mpaId != null) {
+                merge(filmsByMpa, entry.mpaId, sign);
+                merge(durationByMpa, entry.mpaId, sign * entry.duration);
+            }
+            if (entry.year != null) {
+                merge(likesByYear, entry.year, (long) sign * entry.likes);
+            }
+        }
+
+        void merge(Totals other) {
+            films += other.films;
+            other.filmsByGenre.forEach((key, value) -> merge(filmsByGenre, key, value));
+            other.filmsByMpa.forEach((key, value) -> merge(filmsByMpa, key, value));
+            other.durationByMpa.forEach((key, value) -> merge(durationByMpa, key, value));
+            other.likesByYear.forEach((key, value) -> merge(likesByYear, key, value));
+        }
+
+        FilmStats toStats() {
+            Map<Integer, Double> averageDuration = new TreeMap<>();
+            filmsByMpa.forEach((mpaId, count) -> averageDuration.put(mpaId, (double) durationByMpa.get(mpaId) / count));
+            return FilmStats.builder()
+                    .films(films)
+                    .filmsByGenre(new TreeMap<>(filmsByGenre))
+                    .averageDurationByMpa(averageDuration)
+                    .likesByYear(new TreeMap<>(likesByYear))
+                    .build();
+        }
+
+        // счётчики, опустившиеся до нуля, удаляются, чтобы сводка не копила пустые ключи
+        private static void merge(Map<Integer, Long> counters, int key, long delta) {
+            counters.compute(key, (k, value) -> {
+                long result = (value == null ? 0 : value) + delta;
+                return result == 0 ? null : result;
+            });
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumSet;
+import java.util.List;
+
+// Автодополнение названий фильмов, популярность — число лайков
+@Slf4j
+@Component
+public class FilmSuggestIndex {
+
+    static final int TOP_SIZE = 10;
+
+    private final FilmStorage filmStorage;
+    private final PrefixTrie trie = new PrefixTrie(TOP_SIZE);
+
+    @Autowired
+    public FilmSuggestIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        List<Film> films = filmStorage.get(EnumSet.of(FilmField.ID, FilmField.NAME, FilmField.LIKE_COUNT));
+        films.forEach(film -> trie.put(film.getId(), film.getName(), film.getLikeCount()));
+        log.info("Построено дерево подсказок по названиям фильмов, фильмов: {}", trie.size());
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        Film film = event.getFilm();
+        if (event.getOperation() == Operation.ADD) {
+            trie.put(film.getId(), film.getName(), film.getLikeCount());
+        } else {
+            trie.rename(film.getId(), film.getName()); // лайки изменённого фильма считаются по событиям
+        }
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        trie.addScore(event.getFilmId(), event.getOperation() == Operation.REMOVE ? -1 : 1);
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, TOP_SIZE));
+    }
+}
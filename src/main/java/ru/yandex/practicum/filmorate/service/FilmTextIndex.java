@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Инвертированный индекс по названию и описанию фильмов. Списки фильмов по термам хранятся как
+// сжатые varint-разности возрастающих id, релевантность — вес совпадений с поправкой на число лайков
+@Slf4j
+@Component
+public class FilmTextIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_STEM_LENGTH = 3;
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ой", "ей", "ий", "ый", "ая",
+            "яя", "ое", "ее", "ые", "ие", "ов", "ев", "ах", "ях", "ам", "ям", "ом", "ем", "ию", "ия", "а", "я",
+            "о", "е", "ы", "и", "у", "ю", "ь"};
+    private static final String[] ENGLISH_ENDINGS = {"ing", "ies", "es", "ed", "s"};
+
+    private final FilmStorage filmStorage;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, Map<String, Integer>> filmTerms = new HashMap<>(); // id фильма -> терм -> вес
+    private final Map<Integer, Integer> likes = new HashMap<>();
+
+    @Autowired
+    public FilmTextIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        List<Film> films = filmStorage.get(EnumSet.of(FilmField.ID, FilmField.NAME, FilmField.DESCRIPTION,
+                FilmField.LIKE_COUNT));
+        films.sort(Comparator.comparingInt(Film::getId)); // id по возрастанию дописываются в конец списков
+        films.forEach(this::put);
+        log.info("Построен полнотекстовый индекс фильмов, термов: {}", postings.size());
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        put(event.getFilm());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        lock.writeLock().lock();
+        try {
+            likes.computeIfPresent(event.getFilmId(),
+                    (filmId, count) -> Math.max(0, count + (event.getOperation() == Operation.REMOVE ? -1 : 1)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // id фильмов, содержащих хотя бы одно слово запроса, от наиболее релевантных
+    public List<Integer> search(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        Map<Integer, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String term : terms) {
+                Postings termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                for (int filmId : termPostings.decode()) {
+                    scores.merge(filmId, (double) filmTerms.get(filmId).get(term), Double::sum);
+                }
+            }
+            scores.replaceAll((filmId, score) -> score * (1 + Math.log1p(likes.getOrDefault(filmId, 0))));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    // слова в нижнем регистре с отброшенными типичными окончаниями
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() > 1) {
+                tokens.add(stem(word));
+            }
+        }
+        return tokens;
+    }
+
+    private static String stem(String word) {
+        String[] endings = word.charAt(0) >= 'а' && word.charAt(0) <= 'я' ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+                String stem = word.substring(0, word.length() - ending.length());
+                int length = stem.length();
+                if ((ending.equals("ing") || ending.equals("ed")) && stem.charAt(length - 1) == stem.charAt(length - 2)) {
+                    return stem.substring(0, length - 1); // running -> run
+                }
+                return stem;
+            }
+        }
+        return word;
+    }
+
+    private void put(Film film) {
+        Map<String, Integer> terms = new HashMap<>();
+        tokenize(film.getName()).forEach(term -> terms.merge(term, NAME_WEIGHT, Integer::sum));
+        tokenize(film.getDescription()).forEach(term -> terms.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        int filmId = film.getId();
+        lock.writeLock().lock();
+        try {
+            Map<String, Integer> old = filmTerms.put(filmId, terms);
+            if (old != null) {
+                old.keySet().stream()
+                        .filter(term -> !terms.containsKey(term))
+                        .forEach(term -> {
+                            Postings termPostings = postings.get(term);
+                            termPostings.remove(filmId);
+                            if (termPostings.isEmpty()) {
+                                postings.remove(term);
+                            }
+                        });
+            }
+            terms.keySet().stream()
+                    .filter(term -> old == null || !old.containsKey(term))
+                    .forEach(term -> postings.computeIfAbsent(term, t -> new Postings()).add(filmId));
+            likes.putIfAbsent(filmId, film.getLikeCount());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возрастающий список id, закодированный разностями соседних id в формате varint
+    static class Postings {
+        private byte[] data = new byte[0];
+        private int size;
+        private int last;
+
+        void add(int filmId) {
+            if (size > 0 && filmId <= last) {
+                int[] ids = decode();
+                int position = Arrays.binarySearch(ids, filmId);
+                if (position >= 0) {
+                    return;
+                }
+                int[] updated = new int[ids.length + 1];
+                position = -position - 1;
+                System.arraycopy(ids, 0, updated, 0, position);
+                updated[position] = filmId;
+                System.arraycopy(ids, position, updated, position + 1, ids.length - position);
+                encode(updated);
+                return;
+            }
+            // частый случай — новый фильм с наибольшим id, дописываем в конец без перекодирования
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 5);
+            out.write(data, 0, data.length);
+            writeVarint(out, filmId - last);
+            data = out.toByteArray();
+            last = filmId;
+            size++;
+        }
+
+        void remove(int filmId) {
+            int[] ids = decode();
+            int position = Arrays.binarySearch(ids, filmId);
+            if (position < 0) {
+                return;
+            }
+            int[] updated = new int[ids.length - 1];
+            System.arraycopy(ids, 0, updated, 0, position);
+            System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+            encode(updated);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int[] decode() {
+            int[] ids = new int[size];
+            int offset = 0;
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                int delta = 0;
+                int shift = 0;
+                byte current;
+                do {
+                    current = data[offset++];
+                    delta |= (current & 0x7f) << shift;
+                    shift += 7;
+                } while ((current & 0x80) != 0);
+                previous += delta;
+                ids[i] = previous;
+            }
+            return ids;
+        }
+
+        private void encode(int[] ids) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(ids.length * 2);
+            int previous = 0;
+            for (int id : ids) {
+                writeVarint(out, id - previous);
+                previous = id;
+            }
+            data = out.toByteArray();
+            size = ids.length;
+            last = previous;
+        }
+
+        private static void writeVarint(ByteArrayOutputStream out, int value) {
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Граф дружбы в памяти в обе стороны: пользователь -> те, кого он добавил в друзья, и пользователь -> те,
+// кто добавил его; списки хранятся отсортированными массивами int
+@Slf4j
+@Component
+public class FriendGraph {
+
+    private static final IntArraySet EMPTY = new IntArraySet(1);
+
+    private final UserStorage userStorage;
+    private final Map<Integer, IntArraySet> friends = new HashMap<>();
+    private final Map<Integer, IntArraySet> followers = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public FriendGraph(@Qualifier("userDbStorage") UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        lock.writeLock().lock();
+        try {
+            userStorage.get(EnumSet.of(UserField.ID, UserField.FRIENDS)).forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Загружен граф дружбы, пользователей с друзьями: {}", friends.size());
+    }
+
+    // граф обновляется раньше остальных слушателей, чтобы они видели уже изменённые списки
+    @EventListener
+    @Order(0)
+    public void onFriendship(FriendshipEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getOperation() == Operation.REMOVE) {
+                remove(event.getUserId(), event.getFriendId());
+            } else {
+                add(event.getUserId(), event.getFriendId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // создание и обновление пользователя перезаписывают его друзей целиком
+    @EventListener
+    @Order(0)
+    public void onUser(UserEvent event) {
+        lock.writeLock().lock();
+        try {
+            put(event.getUser());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // выполняет чтение графа под блокировкой; списки из friends действительны только внутри action
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public IntArraySet friends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    // те, кто добавил пользователя в друзья
+    public IntArraySet followers(int userId) {
+        return followers.getOrDefault(userId, EMPTY);
+    }
+
+    public void forEach(BiConsumer<Integer, IntArraySet> action) {
+        friends.forEach(action);
+    }
+
+    private void put(User user) {
+        int userId = user.getId();
+        for (int friendId : friends(userId).toArray()) {
+            if (user.getFriends() == null || !user.getFriends().containsKey(friendId)) {
+                remove(userId, friendId);
+            }
+        }
+        if (user.getFriends() != null) {
+            user.getFriends().keySet().forEach(friendId -> add(userId, friendId));
+        }
+    }
+
+    private void add(int userId, int friendId) {
+        friends.computeIfAbsent(userId, id -> new IntArraySet()).add(friendId);
+        followers.computeIfAbsent(friendId, id -> new IntArraySet()).add(userId);
+    }
+
+    private void remove(int userId, int friendId) {
+        discard(friends, userId, friendId);
+        discard(followers, friendId, userId);
+    }
+
+    private static void discard(Map<Integer, IntArraySet> edges, int userId, int otherId) {
+        IntArraySet row = edges.get(userId);
+        if (row != null && row.remove(otherId) && row.isEmpty()) {
+            edges.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+// Кратчайшие цепочки знакомств. Рукопожатие между пользователями есть, если хотя бы один добавил другого
+// в друзья. Граф хранится в формате CSR (соседи узла v — targets[offsets[v]..offsets[v + 1])), изменения
+// после построения накапливаются в добавленных и удалённых рёбрах и сбрасываются пересборкой.
+// Поиск — двунаправленный обход в ширину с битовыми картами посещённых узлов
+@Slf4j
+@Component
+public class FriendPaths {
+
+    static final int MAX_DEPTH = 6;
+    static final int REBUILD_THRESHOLD = 10_000;
+
+    private final FriendGraph friendGraph;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] offsets = {0};
+    private int[] targets = new int[0];
+    private final Map<Integer, IntArraySet> added = new HashMap<>();
+    private final Map<Integer, IntArraySet> removed = new HashMap<>();
+    private int patches;
+    private int maxId;
+
+    @Autowired
+    public FriendPaths(FriendGraph friendGraph) {
+        this.friendGraph = friendGraph;
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild();
+        log.info("Построен граф рукопожатий: пользователей {}, связей {}", offsets.length - 1, targets.length / 2);
+    }
+
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        lock.writeLock().lock();
+        try {
+            patch(event.getUserId(), event.getFriendId());
+            rebuildIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // обновление пользователя может заменить всех его друзей сразу
+    @EventListener
+    public void onUser(UserEvent event) {
+        int userId = event.getUser().getId();
+        lock.writeLock().lock();
+        try {
+            IntArraySet affected = new IntArraySet();
+            int[] row = friendGraph.read(() -> friendGraph.friends(userId).toArray());
+            Arrays.stream(row).forEach(affected::add);
+            forEachNeighbour(userId, affected::add);
+            for (int i = 0; i < affected.size(); i++) {
+                patch(userId, affected.get(i));
+            }
+            rebuildIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // цепочка id от from до to не длиннее maxDepth рукопожатий, пустой список — цепочки нет
+    public List<Integer> find(int from, int to, int maxDepth) {
+        if (from == to) {
+            return List.of(from);
+        }
+        lock.readLock().lock();
+        try {
+            Search forward = new Search(from, maxId + 1);
+            Search backward = new Search(to, maxId + 1);
+            for (int depth = 0; depth < maxDepth && !forward.isDone() && !backward.isDone(); depth++) {
+                // расширяем меньший фронт, так просматривается меньше узлов
+                int meet = forward.size <= backward.size ? forward.expand(backward) : backward.expand(forward);
+                if (meet != 0) {
+                    List<Integer> path = forward.chain(meet);
+                    Collections.reverse(path);
+                    List<Integer> rest = backward.chain(meet);
+                    path.addAll(rest.subList(1, rest.size()));
+                    return path;
+                }
+            }
+            return List.of();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // полная пересборка CSR по графу дружбы с очисткой накопленных изменений
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            build();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuildIfNeeded() {
+        if (patches >= REBUILD_THRESHOLD) {
+            build();
+        }
+    }
+
+    private void build() {
+        friendGraph.read(() -> {
+            int[] size = {0};
+            friendGraph.forEach((userId, userFriends) -> size[0] = Math.max(size[0],
+                    Math.max(userId, userFriends.isEmpty() ? 0 : userFriends.get(userFriends.size() - 1))));
+            int[] degrees = new int[size[0] + 2];
+            forEachHandshake((userId, friendId) -> {
+                degrees[userId + 1]++;
+                degrees[friendId + 1]++;
+            });
+            for (int i = 1; i < degrees.length; i++) {
+                degrees[i] += degrees[i - 1];
+            }
+            int[] newTargets = new int[degrees[degrees.length - 1]];
+            int[] next = Arrays.copyOf(degrees, degrees.length - 1);
+            forEachHandshake((userId, friendId) -> {
+                newTargets[next[userId]++] = friendId;
+                newTargets[next[friendId]++] = userId;
+            });
+            for (int i = 0; i + 1 < degrees.length; i++) {
+                Arrays.sort(newTargets, degrees[i], degrees[i + 1]);
+            }
+            offsets = degrees;
+            targets = newTargets;
+            maxId = size[0];
+            return null;
+        });
+        added.clear();
+        removed.clear();
+        patches = 0;
+    }
+
+    // каждое рукопожатие один раз, взаимная дружба учитывается со стороны меньшего id
+    private void forEachHandshake(IntIntMap.Consumer action) {
+        friendGraph.forEach((userId, userFriends) -> {
+            for (int i = 0; i < userFriends.size(); i++) {
+                int friendId = userFriends.get(i);
+                if (userId < friendId || !friendGraph.friends(friendId).contains(userId)) {
+                    action.accept(userId, friendId);
+                }
+            }
+        });
+    }
+
+    // приводит ребро к состоянию графа дружбы
+    private void patch(int userId, int friendId) {
+        boolean present = friendGraph.read(() -> friendGraph.friends(userId).contains(friendId)
+                || friendGraph.friends(friendId).contains(userId));
+        setEdge(userId, friendId, present);
+        setEdge(friendId, userId, present);
+        maxId = Math.max(maxId, Math.max(userId, friendId));
+        patches++;
+    }
+
+    private void setEdge(int userId, int friendId, boolean present) {
+        if (present == rowContains(userId, friendId)) {
+            discard(added, userId, friendId);
+            discard(removed, userId, friendId);
+        } else {
+            (present ? added : removed).computeIfAbsent(userId, id -> new IntArraySet()).add(friendId);
+        }
+    }
+
+    private static void discard(Map<Integer, IntArraySet> edges, int userId, int friendId) {
+        IntArraySet row = edges.get(userId);
+        if (row != null && row.remove(friendId) && row.isEmpty()) {
+            edges.remove(userId);
+        }
+    }
+
+    private boolean rowContains(int userId, int friendId) {
+        return userId + 1 < offsets.length
+                && Arrays.binarySearch(targets, offsets[userId], offsets[userId + 1], friendId) >= 0;
+    }
+
+    private void forEachNeighbour(int userId, IntConsumer action) {
+        IntArraySet removedRow = removed.get(userId);
+        if (userId + 1 < offsets.length) {
+            for (int i = offsets[userId]; i < offsets[userId + 1]; i++) {
+                if (removedRow == null || !removedRow.contains(targets[i])) {
+                    action.accept(targets[i]);
+                }
+            }
+        }
+        IntArraySet addedRow = added.get(userId);
+        if (addedRow != null) {
+            for (int i = 0; i < addedRow.size(); i++) {
+                action.accept(addedRow.get(i));
+            }
+        }
+    }
+
+    // Обход в ширину с одной стороны: посещённые узлы, родители для восстановления цепочки и текущий фронт
+    private class Search {
+        private final int root;
+        private final BitSet visited;
+        private final IntIntMap parents = new IntIntMap();
+        private int[] frontier;
+        private int size;
+
+        Search(int root, int nodes) {
+            this.root = root;
+            this.visited = new BitSet(nodes);
+            this.frontier = new int[]{root};
+            this.size = 1;
+            visited.set(root);
+        }
+
+        boolean isDone() {
+            return size == 0;
+        }
+
+        // следующий уровень обхода; возвращает узел встречи с другой стороной или 0
+        int expand(Search other) {
+            int[] current = frontier;
+            int currentSize = size;
+            frontier = new int[Math.max(4, currentSize)];
+            size = 0;
+            int[] meet = {0};
+            for (int i = 0; i < currentSize && meet[0] == 0; i++) {
+                int node = current[i];
+                forEachNeighbour(node, neighbour -> {
+                    if (meet[0] != 0 || visited.get(neighbour)) {
+                        return;
+                    }
+                    visited.set(neighbour);
+                    parents.add(neighbour, node);
+                    if (other.visited.get(neighbour)) {
+                        meet[0] = neighbour;
+                        return;
+                    }
+                    if (size == frontier.length) {
+                        frontier = Arrays.copyOf(frontier, size * 2);
+                    }
+                    frontier[size++] = neighbour;
+                });
+            }
+            return meet[0];
+        }
+
+        // узлы от node обратно до корня этой стороны
+        List<Integer> chain(int node) {
+            List<Integer> chain = new ArrayList<>();
+            chain.add(node);
+            while (node != root) {
+                node = parents.get(node);
+                chain.add(node);
+            }
+            return chain;
+        }
+    }
+}
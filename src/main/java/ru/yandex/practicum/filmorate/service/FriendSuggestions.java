@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Возможные друзья: друзья друзей, которых пользователь ещё не добавил, по числу общих друзей.
+// Друзья обходятся от менее популярных к более популярным, обход прекращается, как только первые count
+// кандидатов уже не могут смениться, или когда просмотрено MAX_VISITED связей второго уровня
+@Component
+public class FriendSuggestions {
+
+    static final int MAX_VISITED = 100_000;
+
+    private static final Comparator<int[]> BY_MUTUAL = Comparator.<int[]>comparingInt(entry -> entry[1])
+            .thenComparing(entry -> -entry[0]);
+
+    private final FriendGraph friendGraph;
+
+    @Autowired
+    public FriendSuggestions(FriendGraph friendGraph) {
+        this.friendGraph = friendGraph;
+    }
+
+    // id предлагаемых пользователей, с наибольшим числом общих друзей первыми
+    public List<Integer> suggest(int userId, int count) {
+        return friendGraph.read(() -> compute(userId, count));
+    }
+
+    private List<Integer> compute(int userId, int count) {
+        IntArraySet own = friendGraph.friends(userId);
+        int[] order = IntStream.of(own.toArray())
+                .boxed()
+                .sorted(Comparator.comparingInt(friendId -> friendGraph.friends(friendId).size()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        IntIntMap mutual = new IntIntMap();
+        List<int[]> settled = null;
+        int visited = 0;
+        int maxMutual = 0;
+        int nextCheck = order.length / 2;
+        int processed = 0;
+        while (processed < order.length && settled == null) {
+            IntArraySet second = friendGraph.friends(order[processed]);
+            if (visited + second.size() > MAX_VISITED) {
+                break;
+            }
+            visited += second.size();
+            processed++;
+            for (int i = 0; i < second.size(); i++) {
+                int candidateId = second.get(i);
+                if (candidateId != userId && !own.contains(candidateId)) {
+                    maxMutual = Math.max(maxMutual, mutual.add(candidateId, 1));
+                }
+            }
+            int remaining = order.length - processed;
+            if (remaining > 0 && remaining < maxMutual && remaining <= nextCheck) {
+                nextCheck = remaining / 2;
+                settled = settledTop(mutual, count, remaining);
+            }
+        }
+        List<int[]> top = settled == null ? top(mutual, count) : settled;
+        if (settled != null) {
+            // состав уже известен, досчитываем только общих друзей у попавших в него
+            for (int i = processed; i < order.length; i++) {
+                IntArraySet second = friendGraph.friends(order[i]);
+                top.forEach(entry -> entry[1] += second.contains(entry[0]) ? 1 : 0);
+            }
+            top.sort(BY_MUTUAL.reversed());
+        }
+        return top.stream()
+                .map(entry -> entry[0])
+                .collect(Collectors.toList());
+    }
+
+    // первые count кандидатов, если оставшиеся remaining друзей уже не могут вывести вперёд никого другого
+    private List<int[]> settledTop(IntIntMap mutual, int count, int remaining) {
+        List<int[]> top = top(mutual, count + 1);
+        if (top.size() <= count || top.get(count - 1)[1] <= top.get(count)[1] + remaining) {
+            return null;
+        }
+        return new ArrayList<>(top.subList(0, count));
+    }
+
+    private List<int[]> top(IntIntMap mutual, int size) {
+        PriorityQueue<int[]> queue = new PriorityQueue<>(BY_MUTUAL);
+        mutual.forEach((candidateId, common) -> {
+            if (queue.size() < size) {
+                queue.add(new int[]{candidateId, common});
+            } else if (BY_MUTUAL.compare(new int[]{candidateId, common}, queue.peek()) > 0) {
+                queue.poll();
+                queue.add(new int[]{candidateId, common});
+            }
+        });
+        List<int[]> top = new ArrayList<>(queue);
+        top.sort(BY_MUTUAL.reversed());
+        return top;
+    }
+}
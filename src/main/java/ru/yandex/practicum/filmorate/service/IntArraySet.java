@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+
+// Множество int в отсортированном массиве: компактнее Set<Integer> и быстро пересекается с другими
+public class IntArraySet {
+
+    private int[] values;
+    private int size;
+
+    public IntArraySet() {
+        this(4);
+    }
+
+    public IntArraySet(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    public boolean add(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int index) {
+        return values[index];
+    }
+
+    // индекс первого значения больше value
+    public int indexAfter(int value) {
+        int position = Arrays.binarySearch(values, 0, size, value);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    // размер пересечения слиянием двух отсортированных массивов
+    public int intersectionSize(IntArraySet other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (values[i] == other.values[j]) {
+                count++;
+                i++;
+                j++;
+            } else if (values[i] < other.values[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+}
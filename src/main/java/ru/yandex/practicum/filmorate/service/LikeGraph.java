@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Граф лайков в памяти в обе стороны: пользователь -> фильмы и фильм -> пользователи,
+// списки соседей хранятся отсортированными массивами int
+@Slf4j
+@Component
+public class LikeGraph {
+
+    private static final IntArraySet EMPTY = new IntArraySet(1);
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, IntArraySet> filmsByUser = new HashMap<>();
+    private final Map<Integer, IntArraySet> usersByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Autowired
+    public LikeGraph(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        lock.writeLock().lock();
+        try {
+            filmStorage.forEachLike(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Загружен граф лайков: пользователей {}, фильмов {}", filmsByUser.size(), usersByFilm.size());
+    }
+
+    // граф обновляется раньше остальных слушателей, чтобы они видели уже изменённые списки.
+    // Событие только указывает изменившуюся пару: наличие лайка читается из базы под блокировкой записи,
+    // поэтому лайк и его снятие, доставленные в обратном порядке, не оставляют в графе устаревшее состояние
+    @EventListener
+    @Order(0)
+    public void onLike(LikeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (filmStorage.hasLike(event.getFilmId(), event.getUserId())) {
+                add(event.getFilmId(), event.getUserId());
+            } else {
+                remove(event.getFilmId(), event.getUserId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // выполняет чтение графа под блокировкой; списки из likedFilms и likers действительны только внутри action,
+    // в том числе в задачах, которые action дожидается
+    public <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public IntArraySet likedFilms(int userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public IntArraySet likers(int filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    // id фильмов, у которых есть хотя бы один лайк
+    public int[] likedFilmIds() {
+        return usersByFilm.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void add(int filmId, int userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new IntArraySet()).add(filmId);
+        usersByFilm.computeIfAbsent(filmId, id -> new IntArraySet()).add(userId);
+    }
+
+    private void remove(int filmId, int userId) {
+        IntArraySet films = filmsByUser.get(userId);
+        if (films != null && films.remove(filmId) && films.isEmpty()) {
+            filmsByUser.remove(userId);
+        }
+        IntArraySet users = usersByFilm.get(filmId);
+        if (users != null && users.remove(userId) && users.isEmpty()) {
+            usersByFilm.remove(filmId);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+// Рейтинги популярности внутри жанра и года выхода: для каждого раздела упорядоченное по числу лайков
+// множество фильмов. Лайк переставляет фильм только в его разделах, запрос читает первые count элементов
+@Slf4j
+@Component
+public class PopularFilmsIndex {
+
+    private static final Comparator<Entry> BY_LIKES = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>(); // id фильма -> текущая запись
+    private final Map<Integer, NavigableSet<Entry>> byGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PopularFilmsIndex(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        List<Film> films = filmStorage.get(EnumSet.of(FilmField.ID, FilmField.RELEASE_DATE, FilmField.GENRES,
+                FilmField.LIKE_COUNT));
+        films.forEach(this::put);
+        log.info("Построены рейтинги по жанрам и годам, фильмов: {}", films.size());
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        put(event.getFilm());
+    }
+
+    @EventListener
+    public synchronized void onLike(LikeEvent event) {
+        Entry entry = entries.get(event.getFilmId());
+        if (entry == null) {
+            return;
+        }
+        int likes = Math.max(0, entry.likes + (event.getOperation() == Operation.REMOVE ? -1 : 1));
+        replace(entry, new Entry(entry.filmId, likes, entry.genreIds, entry.year));
+    }
+
+    // id самых популярных фильмов раздела; genreId и year можно задать вместе, null означает любой
+    public List<Integer> getPopular(Integer genreId, Integer year, int count) {
+        NavigableSet<Entry> genreFilms = genreId == null ? null : byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+        NavigableSet<Entry> yearFilms = year == null ? null : byYear.getOrDefault(year, Collections.emptyNavigableSet());
+        NavigableSet<Entry> scan;
+        if (genreFilms == null) {
+            scan = yearFilms;
+        } else if (yearFilms == null) {
+            scan = genreFilms;
+        } else {
+            scan = genreFilms.size() <= yearFilms.size() ? genreFilms : yearFilms; // проходим меньший раздел
+        }
+        List<Integer> filmIds = new ArrayList<>(Math.min(count, scan.size()));
+        Iterator<Entry> iterator = scan.iterator();
+        while (iterator.hasNext() && filmIds.size() < count) {
+            Entry entry = iterator.next();
+            if ((genreId == null || entry.genreIds.contains(genreId)) && (year == null || entry.year == year)) {
+                filmIds.add(entry.filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    private synchronized void put(Film film) {
+        Entry old = entries.get(film.getId());
+        Set<Integer> genreIds = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        int likes = old == null ? film.getLikeCount() : old.likes; // у изменённого фильма счётчик ведём сами
+        replace(old, new Entry(film.getId(), likes, genreIds, film.getReleaseDate().getYear()));
+    }
+
+    private void replace(Entry old, Entry entry) {
+        if (old != null) {
+            old.genreIds.forEach(genreId -> byGenre.get(genreId).remove(old));
+            byYear.get(old.year).remove(old);
+        }
+        entry.genreIds.forEach(genreId -> partition(byGenre, genreId).add(entry));
+        partition(byYear, entry.year).add(entry);
+        entries.put(entry.filmId, entry);
+    }
+
+    private static NavigableSet<Entry> partition(Map<Integer, NavigableSet<Entry>> partitions, int key) {
+        return partitions.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(BY_LIKES));
+    }
+
+    private static class Entry {
+        private final int filmId;
+        private final int likes;
+        private final Set<Integer> genreIds;
+        private final int year;
+
+        Entry(int filmId, int likes, Set<Integer> genreIds, int year) {
+            this.filmId = filmId;
+            this.likes = likes;
+            this.genreIds = genreIds;
+            this.year = year;
+        }
+
+        int getFilmId() {
+            return filmId;
+        }
+
+        int getLikes() {
+            return likes;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PopularFilms;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Снимок самых популярных фильмов. Читается без блокировок через volatile-ссылку на неизменяемый список,
+// пересчитывается по расписанию и после заметного числа изменений лайков. Если пересчёт завис
+// или упал, продолжает отдаваться предыдущий снимок.
+@Slf4j
+@Component
+public class PopularFilmsSnapshot {
+
+    private final FilmStorage filmStorage;
+    private final int size;
+    private final int refreshThreshold;
+    private final AtomicInteger changesSinceRefresh = new AtomicInteger();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "popular-films-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile PopularFilms snapshot;
+
+    @Autowired
+    public PopularFilmsSnapshot(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                                @Value("${filmorate.popular.snapshot-size:100}") int size,
+                                @Value("${filmorate.popular.refresh-threshold:50}") int refreshThreshold) {
+        this.filmStorage = filmStorage;
+        this.size = size;
+        this.refreshThreshold = refreshThreshold;
+    }
+
+    // снимок с первыми count фильмами или null, если снимка ещё нет или он короче запрошенного
+    public PopularFilms get(int count) {
+        PopularFilms current = snapshot;
+        if (current == null || count <= 0 || count > size) {
+            return null;
+        }
+        List<Film> films = current.getFilms();
+        return PopularFilms.builder()
+                .films(count >= films.size() ? films : films.subList(0, count))
+                .builtAt(current.getBuiltAt())
+                .build();
+    }
+
+    // момент построения текущего снимка, null — снимка ещё нет
+    public Instant getBuiltAt() {
+        PopularFilms current = snapshot;
+        return current == null ? null : current.getBuiltAt();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.popular.refresh-interval-ms:30000}")
+    public void refresh() {
+        if (size <= 0 || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            changesSinceRefresh.set(0);
+            long start = System.nanoTime();
+            List<Film> films = List.copyOf(filmStorage.getPopularFilms(size));
+            snapshot = PopularFilms.builder()
+                    .films(films)
+                    .builtAt(Instant.now())
+                    .build();
+            log.debug("Снимок популярных фильмов пересчитан за {} мс", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось пересчитать снимок популярных фильмов, отдаётся предыдущий", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        if (changesSinceRefresh.incrementAndGet() >= refreshThreshold) {
+            requestRefresh();
+        }
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        PopularFilms current = snapshot;
+        if (current == null || current.getFilms().size() < size) {
+            requestRefresh(); // новый или изменённый фильм может попасть в неполный снимок
+            return;
+        }
+        for (Film film : current.getFilms()) {
+            if (film.getId() == event.getFilm().getId()) {
+                requestRefresh();
+                return;
+            }
+        }
+    }
+
+    private void requestRefresh() {
+        if (!refreshing.get()) {
+            refresher.execute(this::refresh);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
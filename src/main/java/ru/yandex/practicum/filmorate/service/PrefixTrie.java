@@ -0,0 +1,229 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Suggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Префиксное дерево для автодополнения. Дети узла хранятся в отсортированных массивах, каждый узел
+// держит готовый список лучших по популярности завершений, поэтому подсказка — это спуск по префиксу
+// без обхода поддерева. Изменение ключа или популярности пересчитывает списки только на его пути
+public class PrefixTrie {
+
+    private static final int[] NO_IDS = new int[0];
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int topSize;
+    private final Node root = new Node();
+    private final Map<Integer, String> texts = new HashMap<>(); // id -> исходный текст
+    private final Map<Integer, String> keys = new HashMap<>(); // id -> нормализованный ключ
+    private final Map<Integer, Integer> scores = new HashMap<>();
+    private final Comparator<Integer> byScore = Comparator.<Integer>comparingInt(id -> scores.get(id)).reversed()
+            .thenComparingInt(id -> id);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PrefixTrie(int topSize) {
+        this.topSize = topSize;
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int size = Math.min(limit, node.top.length);
+            List<Suggestion> suggestions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int id = node.top[i];
+                suggestions.add(Suggestion.builder().id(id).text(texts.get(id)).build());
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(int id, String text, int score) {
+        String key = normalize(text);
+        lock.writeLock().lock();
+        try {
+            String old = keys.put(id, key);
+            Integer oldScore = scores.put(id, score);
+            texts.put(id, text);
+            if (old != null && !old.equals(key)) {
+                Node[] oldPath = path(old);
+                Node end = oldPath[oldPath.length - 1];
+                end.ids = Arrays.stream(end.ids).filter(existing -> existing != id).toArray();
+                refresh(old, oldPath);
+            }
+            Node[] path = path(key);
+            Node end = path[path.length - 1];
+            if (Arrays.stream(end.ids).noneMatch(existing -> existing == id)) {
+                end.ids = Arrays.copyOf(end.ids, end.ids.length + 1);
+                end.ids[end.ids.length - 1] = id;
+            }
+            if (key.equals(old) && score < oldScore) {
+                refresh(key, path);
+            } else {
+                promote(id, path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // новый текст с сохранением накопленной популярности
+    public void rename(int id, String text) {
+        lock.writeLock().lock();
+        try {
+            put(id, text, scores.getOrDefault(id, 0));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addScore(int id, int delta) {
+        lock.writeLock().lock();
+        try {
+            String key = keys.get(id);
+            if (key == null) {
+                return;
+            }
+            scores.merge(id, delta, (score, change) -> Math.max(0, score + change));
+            if (delta > 0) {
+                promote(id, path(key));
+            } else {
+                refresh(key, path(key));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    // узлы от корня до конца ключа, недостающие создаются
+    private Node[] path(String key) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].childOrCreate(key.charAt(i));
+        }
+        return path;
+    }
+
+    // пересчёт лучших завершений снизу вверх, опустевшие узлы отцепляются от родителя
+    private void refresh(String key, Node[] path) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node node = path[i];
+            if (i > 0 && node.ids.length == 0 && node.children.length == 0) {
+                path[i - 1].removeChild(key.charAt(i - 1));
+                continue;
+            }
+            List<Integer> candidates = new ArrayList<>();
+            Arrays.stream(node.ids).forEach(candidates::add);
+            for (Node child : node.children) {
+                Arrays.stream(child.top).forEach(candidates::add);
+            }
+            candidates.sort(byScore);
+            node.top = candidates.stream()
+                    .limit(topSize)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    // подъём id, популярность которого выросла: списки остальных узлов не меняются, и если id не попал
+    // в список узла, то не попадёт и в списки его предков
+    private void promote(int id, Node[] path) {
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node node = path[i];
+            int[] top = node.top;
+            boolean present = Arrays.stream(top).anyMatch(existing -> existing == id);
+            if (!present && top.length == topSize && byScore.compare(id, top[top.length - 1]) > 0) {
+                return;
+            }
+            List<Integer> candidates = new ArrayList<>(top.length + 1);
+            Arrays.stream(top).forEach(candidates::add);
+            if (!present) {
+                candidates.add(id);
+            }
+            candidates.sort(byScore);
+            node.top = candidates.stream()
+                    .limit(topSize)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    private static class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private int[] ids = NO_IDS; // id, ключ которых заканчивается в этом узле
+        private int[] top = NO_IDS;
+
+        Node child(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position >= 0) {
+                return children[position];
+            }
+            position = -position - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newLabels[position] = label;
+            newChildren[position] = new Node();
+            System.arraycopy(labels, position, newLabels, position + 1, labels.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            labels = newLabels;
+            children = newChildren;
+            return children[position];
+        }
+
+        void removeChild(char label) {
+            int position = Arrays.binarySearch(labels, label);
+            if (position < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            System.arraycopy(labels, position + 1, newLabels, position, labels.length - position - 1);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            labels = newLabels;
+            children = newChildren;
+        }
+    }
+}
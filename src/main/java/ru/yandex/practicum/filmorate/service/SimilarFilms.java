@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Похожие фильмы по пересечению множеств лайкнувших пользователей. Для каждого фильма хранится
+// MinHash-сигнатура, её полосы раскладываются по корзинам LSH; кандидаты — фильмы из общих корзин,
+// они упорядочиваются по точной мере Жаккара, при равенстве — по числу общих жанров
+@Slf4j
+@Component
+public class SimilarFilms {
+
+    static final int BANDS = 64;
+    static final int ROWS = 2; // пара с мерой Жаккара 0.2 попадает в общую корзину с вероятностью ~0.93, с 0.3 — ~0.997
+    static final int HASHES = BANDS * ROWS;
+
+    private static final long[] SEEDS = new Random(20230101L).longs(HASHES).toArray();
+
+    private final FilmStorage filmStorage;
+    private final LikeGraph likeGraph;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> signatures = new HashMap<>();
+    private final List<Map<Long, IntArraySet>> buckets = new ArrayList<>(BANDS);
+    private final Map<Integer, Set<Integer>> genres = new HashMap<>();
+
+    @Autowired
+    public SimilarFilms(@Qualifier("filmDbStorage") FilmStorage filmStorage, LikeGraph likeGraph) {
+        this.filmStorage = filmStorage;
+        this.likeGraph = likeGraph;
+        for (int band = 0; band < BANDS; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        filmStorage.get(EnumSet.of(FilmField.ID, FilmField.GENRES)).forEach(this::putGenres);
+        int[] filmIds = likeGraph.read(likeGraph::likedFilmIds);
+        for (int filmId : filmIds) {
+            recompute(filmId);
+        }
+        log.info("Построены MinHash-сигнатуры фильмов: {}", filmIds.length);
+    }
+
+    @EventListener
+    public void onFilm(FilmEvent event) {
+        putGenres(event.getFilm());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        if (event.getOperation() == Operation.REMOVE) {
+            recompute(event.getFilmId()); // минимум нельзя уменьшить обратно, пересчитываем по графу лайков
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int[] old = signatures.get(event.getFilmId());
+            int[] signature = old == null ? emptySignature() : old.clone();
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], hash(i, event.getUserId()));
+            }
+            replace(event.getFilmId(), old, signature);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // id похожих фильмов, самые похожие первыми
+    public List<Integer> getSimilar(int filmId, int count) {
+        IntArraySet candidates = new IntArraySet();
+        lock.readLock().lock();
+        try {
+            int[] signature = signatures.get(filmId);
+            if (signature == null) {
+                return List.of();
+            }
+            for (int band = 0; band < BANDS; band++) {
+                IntArraySet bucket = buckets.get(band).get(bandKey(signature, band));
+                for (int i = 0; i < bucket.size(); i++) {
+                    if (bucket.get(i) != filmId) {
+                        candidates.add(bucket.get(i));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Integer, Double> similarity = likeGraph.read(() -> {
+            Map<Integer, Double> result = new HashMap<>();
+            IntArraySet likers = likeGraph.likers(filmId);
+            for (int i = 0; i < candidates.size(); i++) {
+                result.put(candidates.get(i), jaccard(likers, likeGraph.likers(candidates.get(i))));
+            }
+            return result;
+        });
+        Set<Integer> filmGenres = genresOf(filmId);
+        return similarity.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Comparator.<Map.Entry<Integer, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                        .thenComparing(entry -> -commonGenres(filmGenres, genresOf(entry.getKey())))
+                        .thenComparing(Map.Entry::getKey))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    public static double jaccard(IntArraySet first, IntArraySet second) {
+        int common = first.intersectionSize(second);
+        int union = first.size() + second.size() - common;
+        return union == 0 ? 0 : (double) common / union;
+    }
+
+    // лайкнувшие читаются под блокировкой записи сигнатур: лайк, попавший в граф позже чтения,
+    // применится в onLike уже после замены и не будет затёрт старой сигнатурой
+    private void recompute(int filmId) {
+        lock.writeLock().lock();
+        try {
+            int[] likers = likeGraph.read(() -> likeGraph.likers(filmId).toArray());
+            int[] signature = null;
+            if (likers.length > 0) {
+                signature = emptySignature();
+                for (int userId : likers) {
+                    for (int i = 0; i < HASHES; i++) {
+                        signature[i] = Math.min(signature[i], hash(i, userId));
+                    }
+                }
+            }
+            replace(filmId, signatures.get(filmId), signature);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // перекладывает фильм по корзинам только в тех полосах, где сигнатура изменилась
+    private void replace(int filmId, int[] old, int[] signature) {
+        for (int band = 0; band < BANDS; band++) {
+            Long oldKey = old == null ? null : bandKey(old, band);
+            Long newKey = signature == null ? null : bandKey(signature, band);
+            if (oldKey != null && oldKey.equals(newKey)) {
+                continue;
+            }
+            Map<Long, IntArraySet> bandBuckets = buckets.get(band);
+            if (oldKey != null) {
+                IntArraySet bucket = bandBuckets.get(oldKey);
+                bucket.remove(filmId);
+                if (bucket.isEmpty()) {
+                    bandBuckets.remove(oldKey);
+                }
+            }
+            if (newKey != null) {
+                bandBuckets.computeIfAbsent(newKey, key -> new IntArraySet()).add(filmId);
+            }
+        }
+        if (signature == null) {
+            signatures.remove(filmId);
+        } else {
+            signatures.put(filmId, signature);
+        }
+    }
+
+    private void putGenres(Film film) {
+        Set<Integer> filmGenres = film.getGenres() == null ? Set.of() : film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        lock.writeLock().lock();
+        try {
+            genres.put(film.getId(), filmGenres);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<Integer> genresOf(int filmId) {
+        lock.readLock().lock();
+        try {
+            return genres.getOrDefault(filmId, Set.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int commonGenres(Set<Integer> first, Set<Integer> second) {
+        return (int) first.stream().filter(second::contains).count();
+    }
+
+    private static int[] emptySignature() {
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        return signature;
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = 0; row < ROWS; row++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS + row];
+        }
+        return key;
+    }
+
+    // i-я хеш-функция над id пользователя (перемешивание splitmix64 с отдельным зерном)
+    private static int hash(int i, int userId) {
+        long x = userId + SEEDS[i];
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (x ^ (x >>> 31));
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Склеивает одинаковые одновременные запросы: пока вычисление по ключу выполняется,
+// остальные вызовы с тем же ключом ждут его и получают тот же результат (или то же исключение).
+// Версия данных, прочитанная вызывающим до загрузки, разводит вычисления: после записи версия растёт,
+// и новый вызов не присоединяется к загрузке, начатой до записи. Счётчики ведутся по ключу без версии
+@Slf4j
+public class SingleFlight<K, V> {
+
+    private static final int MAX_TRACKED_KEYS = 10_000; // ограничение памяти под счётчики
+    private static final Counters UNTRACKED = new Counters();
+
+    private final String name;
+    private final Map<List<Object>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Map<K, Counters> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    public V execute(K key, Supplier<V> loader) {
+        return execute(key, 0, loader);
+    }
+
+    public V execute(K key, long version, Supplier<V> loader) {
+        Counters keyCounters = counters.get(key);
+        if (keyCounters == null) {
+            keyCounters = counters.size() < MAX_TRACKED_KEYS
+                    ? counters.computeIfAbsent(key, k -> new Counters())
+                    : UNTRACKED;
+        }
+        keyCounters.calls.increment();
+        CompletableFuture<V> own = new CompletableFuture<>();
+        List<Object> flightKey = List.of(key, version);
+        CompletableFuture<V> running = inFlight.putIfAbsent(flightKey, own);
+        if (running != null) {
+            keyCounters.collapsed.increment();
+            log.trace("Запрос {} с ключом {} присоединён к уже выполняющемуся", name, key);
+            return await(running);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (Throwable e) { // и Error тоже, иначе присоединившиеся вызовы ждали бы вечно
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, own);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public Map<K, Stats> getStats() {
+        Map<K, Stats> stats = new HashMap<>();
+        counters.forEach((key, keyCounters) -> stats.put(key, Stats.builder()
+                .calls(keyCounters.calls.sum())
+                .collapsed(keyCounters.collapsed.sum())
+                .build()));
+        return stats;
+    }
+
+    // те же счётчики с ключами в виде строк, для отдачи наружу
+    public Map<String, Stats> getReport() {
+        Map<String, Stats> report = new TreeMap<>();
+        getStats().forEach((key, stats) -> report.put(String.valueOf(key), stats));
+        return report;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Data
+    @Builder
+    public static class Stats {
+        private long calls; // всего вызовов с ключом
+        private long collapsed; // из них обслужено чужим вычислением
+    }
+
+    private static class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder collapsed = new LongAdder();
+    }
+}
@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Счётчики лайков по часам за последнюю неделю: у каждого фильма кольцевой буфер из часовых корзин.
+// Лайки и их снятие меняют одну корзину, запрос за окно суммирует корзины и не читает историю лайков
+@Slf4j
+@Component
+public class TrendingFilms {
+
+    static final Duration BUCKET = Duration.ofHours(1);
+    static final int BUCKETS = 7 * 24; // максимальное окно — неделя
+
+    // неделя — не больше 168 часов, более длинное число не разбирается, чтобы не переполнить long и Duration
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,3})([hd])");
+
+    private final FilmStorage filmStorage;
+    private final Clock clock;
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TrendingFilms(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this(filmStorage, Clock.systemUTC());
+    }
+
+    public TrendingFilms(FilmStorage filmStorage, Clock clock) {
+        this.filmStorage = filmStorage;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void load() {
+        Instant since = clock.instant().minus(BUCKET.multipliedBy(BUCKETS));
+        Map<Integer, List<Instant>> likeTimes = filmStorage.getLikeTimesSince(since);
+        likeTimes.forEach((filmId, times) -> times.forEach(likedAt -> add(filmId, likedAt, 1)));
+        log.info("Загружены недавние лайки для трендов, фильмов: {}", likeTimes.size());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        if (event.getLikedAt() != null) {
+            add(event.getFilmId(), event.getLikedAt(), event.getOperation() == Operation.REMOVE ? -1 : 1);
+        }
+    }
+
+    // id фильмов с наибольшим числом лайков за окно, фильмы без лайков в окне не попадают
+    public List<Integer> getTrending(Duration window, int count) {
+        long now = hour(clock.instant());
+        int hours = (int) (window.toMillis() / BUCKET.toMillis());
+        Comparator<long[]> byScore = Comparator.<long[]>comparingLong(entry -> entry[1])
+                .thenComparing(entry -> -entry[0]);
+        PriorityQueue<long[]> top = new PriorityQueue<>(byScore);
+        counters.forEach((filmId, counter) -> {
+            long score = counter.sum(now, hours);
+            if (score > 0) {
+                top.add(new long[]{filmId, score});
+                if (top.size() > count) {
+                    top.poll();
+                }
+            }
+        });
+        List<Integer> filmIds = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            filmIds.add(0, (int) top.poll()[0]);
+        }
+        return filmIds;
+    }
+
+    // окно в формате 24h или 7d, не больше недели
+    public static Duration parseWindow(String window) {
+        Matcher matcher = WINDOW.matcher(window == null ? "" : window);
+        if (!matcher.matches()) {
+            log.debug("Некорректное окно трендов: {}", window);
+            throw new ValidationException();
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration duration = matcher.group(2).equals("d") ? Duration.ofDays(amount) : Duration.ofHours(amount);
+        if (duration.isZero() || duration.compareTo(BUCKET.multipliedBy(BUCKETS)) > 0) {
+            log.debug("Окно трендов вне допустимого диапазона: {}", window);
+            throw new ValidationException();
+        }
+        return duration;
+    }
+
+    private void add(int filmId, Instant likedAt, int delta) {
+        counters.computeIfAbsent(filmId, id -> new Counter()).add(hour(clock.instant()), hour(likedAt), delta);
+    }
+
+    private static long hour(Instant instant) {
+        return instant.toEpochMilli() / BUCKET.toMillis();
+    }
+
+    private static class Counter {
+        private final int[] counts = new int[BUCKETS];
+        private long head; // номер часа, которому соответствует самая свежая корзина
+
+        synchronized void add(long now, long hour, int delta) {
+            advance(now);
+            if (hour > head || hour <= head - BUCKETS) {
+                return; // лайк старше окна или из будущего
+            }
+            int slot = (int) (hour % BUCKETS);
+            counts[slot] = Math.max(0, counts[slot] + delta);
+        }
+
+        synchronized long sum(long now, int hours) {
+            advance(now);
+            long sum = 0;
+            for (int i = 0; i < Math.min(hours, BUCKETS); i++) {
+                sum += counts[(int) ((head - i) % BUCKETS)];
+            }
+            return sum;
+        }
+
+        // обнуляет корзины часов, прошедших с последнего обращения
+        private void advance(long now) {
+            if (now <= head) {
+                return;
+            }
+            long steps = Math.min(now - head, BUCKETS);
+            for (long i = 1; i <= steps; i++) {
+                counts[(int) ((head + i) % BUCKETS)] = 0;
+            }
+            head = now;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+import ru.yandex.practicum.filmorate.model.FeedEventType;
+import ru.yandex.practicum.filmorate.model.FeedPage;
+import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Лента действий друзей. Каждое действие пишется в журнал и сразу раскладывается по ограниченным лентам
+// тех, кто добавил автора в друзья. У популярных авторов (подписчиков больше порога) записи остаются
+// в их собственном буфере, и читатели подмешивают их при запросе ленты
+@Slf4j
+@Component
+public class UserFeed {
+
+    static final int TIMELINE_SIZE = 500;
+    static final int LOAD_LIMIT = 100_000; // записей журнала, раскладываемых по лентам при запуске
+
+    private final FeedStorage feedStorage;
+    private final FriendGraph friendGraph;
+    private final int fanOutThreshold;
+    private final Map<Integer, FeedTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Integer, FeedTimeline> outboxes = new ConcurrentHashMap<>(); // записи популярных авторов
+
+    @Autowired
+    public UserFeed(@Qualifier("feedDbStorage") FeedStorage feedStorage, FriendGraph friendGraph,
+                    @Value("${filmorate.feed.fanout-threshold:1000}") int fanOutThreshold) {
+        this.feedStorage = feedStorage;
+        this.friendGraph = friendGraph;
+        this.fanOutThreshold = fanOutThreshold;
+    }
+
+    @PostConstruct
+    void load() {
+        List<FeedEntry> entries = feedStorage.getLatest(LOAD_LIMIT);
+        entries.forEach(this::deliver);
+        log.info("Ленты восстановлены из журнала: записей {}, лент {}", entries.size(), timelines.size());
+    }
+
+    @EventListener
+    public void onLike(LikeEvent event) {
+        record(event.getUserId(), FeedEventType.LIKE, event.getOperation(), event.getFilmId());
+    }
+
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        record(event.getUserId(), FeedEventType.FRIEND, event.getOperation(), event.getFriendId());
+    }
+
+    // записи ленты с id меньше cursor (без cursor — самые новые), от новых к старым
+    public FeedPage getFeed(int userId, Long cursor, int count) {
+        long before = cursor == null ? Long.MAX_VALUE : cursor;
+        List<List<FeedEntry>> sources = new ArrayList<>();
+        FeedTimeline timeline = timelines.get(userId);
+        if (timeline != null) {
+            sources.add(timeline.before(before, count));
+        }
+        int[] followees = friendGraph.read(() -> friendGraph.friends(userId).toArray());
+        if (followees.length <= outboxes.size()) {
+            for (int followeeId : followees) {
+                FeedTimeline outbox = outboxes.get(followeeId);
+                if (outbox != null) {
+                    sources.add(outbox.before(before, count));
+                }
+            }
+        } else {
+            outboxes.forEach((authorId, outbox) -> {
+                if (Arrays.binarySearch(followees, authorId) >= 0) {
+                    sources.add(outbox.before(before, count));
+                }
+            });
+        }
+        List<FeedEntry> entries = merge(sources, count);
+        return FeedPage.builder()
+                .entries(entries)
+                .nextCursor(entries.size() < count ? null : entries.get(entries.size() - 1).getId())
+                .build();
+    }
+
+    private void record(int userId, FeedEventType type, Operation operation, int entityId) {
+        deliver(feedStorage.add(FeedEntry.builder()
+                .userId(userId)
+                .type(type)
+                .operation(operation)
+                .entityId(entityId)
+                .timestamp(Instant.now())
+                .build()));
+    }
+
+    private void deliver(FeedEntry entry) {
+        int[] followers = friendGraph.read(() -> {
+            IntArraySet userFollowers = friendGraph.followers(entry.getUserId());
+            return userFollowers.size() > fanOutThreshold ? null : userFollowers.toArray();
+        });
+        if (followers == null) {
+            outboxes.computeIfAbsent(entry.getUserId(), id -> new FeedTimeline(TIMELINE_SIZE)).add(entry);
+            return;
+        }
+        for (int followerId : followers) {
+            timelines.computeIfAbsent(followerId, id -> new FeedTimeline(TIMELINE_SIZE)).add(entry);
+        }
+    }
+
+    // слияние списков, упорядоченных от новых к старым, первые count записей
+    private static List<FeedEntry> merge(List<List<FeedEntry>> sources, int count) {
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.<int[]>comparingLong(
+                head -> sources.get(head[0]).get(head[1]).getId()).reversed());
+        for (int i = 0; i < sources.size(); i++) {
+            if (!sources.get(i).isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<FeedEntry> entries = new ArrayList<>(count);
+        while (entries.size() < count && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<FeedEntry> source = sources.get(head[0]);
+            entries.add(source.get(head[1]));
+            if (++head[1] < source.size()) {
+                heads.add(head);
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Влиятельность пользователей по PageRank на графе дружбы: добавление в друзья передаёт добавленному
+// часть веса добавившего. Пересчёт идёт в фоне по расписанию, если граф менялся, стартует с прошлых оценок
+// и делит вершины между потоками по диапазонам; готовые оценки публикуются одной заменой ссылки
+@Slf4j
+@Component
+public class UserInfluence {
+
+    static final double DAMPING = 0.85;
+    static final double TOLERANCE = 1e-6; // суммарное изменение оценок за итерацию
+    static final int MAX_ITERATIONS = 100;
+    static final int TOP_SIZE = 1000;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final FriendGraph friendGraph;
+    private final ForkJoinPool pool;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile Scores scores = new Scores(new int[0], new double[0], List.of(), Instant.EPOCH);
+
+    @Autowired
+    public UserInfluence(FriendGraph friendGraph, @Value("${filmorate.influence.parallelism:4}") int parallelism) {
+        this.friendGraph = friendGraph;
+        this.pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, Runtime.getRuntime().availableProcessors())));
+    }
+
+    @PostConstruct
+    void load() {
+        refresh();
+    }
+
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        dirty.set(true);
+    }
+
+    @EventListener
+    public void onUser(UserEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.influence.refresh-interval-ms:60000}")
+    public void refresh() {
+        // флаг снимается до чтения графа, чтобы изменения во время пересчёта вызвали следующий;
+        // при ошибке он возвращается, иначе оценки остались бы устаревшими до следующего изменения графа
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        long start = System.nanoTime();
+        Graph graph;
+        double[] ranks;
+        int iterations = 0;
+        try {
+            graph = friendGraph.read(this::snapshot);
+            ranks = initialRanks(graph.ids);
+            double delta = Double.MAX_VALUE;
+            while (iterations < MAX_ITERATIONS && delta > TOLERANCE) {
+                double[] next = new double[ranks.length];
+                delta = iterate(graph, ranks, next);
+                ranks = next;
+                iterations++;
+            }
+            scores = new Scores(graph.ids, ranks, top(graph.ids, ranks), Instant.now());
+        } catch (RuntimeException | Error e) {
+            dirty.set(true);
+            throw e;
+        }
+        log.info("Пересчитана влиятельность пользователей: {} вершин, {} итераций за {} мс",
+                graph.ids.length, iterations, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // id самых влиятельных пользователей по убыванию оценки
+    public List<Integer> getTop(int count) {
+        List<Integer> top = scores.top;
+        return top.size() > count ? top.subList(0, count) : top;
+    }
+
+    // оценка пользователя по последнему пересчёту, 0 — пользователя нет в графе
+    public double getScore(int userId) {
+        Scores current = scores;
+        int index = Arrays.binarySearch(current.ids, userId);
+        return index >= 0 ? current.ranks[index] : 0;
+    }
+
+    public Instant getBuiltAt() {
+        return scores.builtAt;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // копия графа в массивах: вершины по возрастанию id, для каждой — входящие рёбра в формате CSR
+    private Graph snapshot() {
+        int[] edges = {0};
+        friendGraph.forEach((userId, userFriends) -> edges[0] += userFriends.size());
+        int[] all = new int[edges[0] * 2];
+        int[] size = {0};
+        friendGraph.forEach((userId, userFriends) -> {
+            for (int i = 0; i < userFriends.size(); i++) {
+                all[size[0]++] = userId;
+                all[size[0]++] = userFriends.get(i);
+            }
+        });
+        int[] ids = IntStream.of(all).sorted().distinct().toArray();
+        int[] outDegrees = new int[ids.length];
+        int[] offsets = new int[ids.length + 1];
+        friendGraph.forEach((userId, userFriends) -> {
+            outDegrees[Arrays.binarySearch(ids, userId)] = userFriends.size();
+            for (int i = 0; i < userFriends.size(); i++) {
+                offsets[Arrays.binarySearch(ids, userFriends.get(i)) + 1]++;
+            }
+        });
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] sources = new int[edges[0]];
+        int[] next = Arrays.copyOf(offsets, ids.length);
+        friendGraph.forEach((userId, userFriends) -> {
+            int source = Arrays.binarySearch(ids, userId);
+            for (int i = 0; i < userFriends.size(); i++) {
+                sources[next[Arrays.binarySearch(ids, userFriends.get(i))]++] = source;
+            }
+        });
+        return new Graph(ids, outDegrees, offsets, sources);
+    }
+
+    // прошлые оценки как начальное приближение: после небольших изменений графа хватает нескольких итераций
+    private double[] initialRanks(int[] ids) {
+        Scores previous = scores;
+        double[] ranks = new double[ids.length];
+        double total = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int index = Arrays.binarySearch(previous.ids, ids[i]);
+            ranks[i] = index >= 0 ? previous.ranks[index] : 1.0 / ids.length;
+            total += ranks[i];
+        }
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] /= total;
+        }
+        return ranks;
+    }
+
+    // одна итерация PageRank, вес вершин без исходящих рёбер распределяется поровну; возвращает изменение оценок
+    private double iterate(Graph graph, double[] ranks, double[] next) {
+        int n = ranks.length;
+        double[] contributions = new double[n];
+        double dangling = 0;
+        for (int i = 0; i < n; i++) {
+            if (graph.outDegrees[i] == 0) {
+                dangling += ranks[i];
+            } else {
+                contributions[i] = ranks[i] / graph.outDegrees[i];
+            }
+        }
+        double base = (1 - DAMPING + DAMPING * dangling) / n;
+        int chunks = Math.min(n, pool.getParallelism() * CHUNKS_PER_THREAD);
+        if (chunks <= 1) {
+            return update(graph, contributions, ranks, next, base, 0, n);
+        }
+        return pool.submit(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToDouble(chunk -> update(graph, contributions, ranks, next, base,
+                        (int) ((long) n * chunk / chunks), (int) ((long) n * (chunk + 1) / chunks)))
+                .sum()).join();
+    }
+
+    private static double update(Graph graph, double[] contributions, double[] ranks, double[] next, double base,
+                                 int from, int to) {
+        double delta = 0;
+        for (int v = from; v < to; v++) {
+            double sum = 0;
+            for (int i = graph.offsets[v]; i < graph.offsets[v + 1]; i++) {
+                sum += contributions[graph.sources[i]];
+            }
+            next[v] = base + DAMPING * sum;
+            delta += Math.abs(next[v] - ranks[v]);
+        }
+        return delta;
+    }
+
+    private static List<Integer> top(int[] ids, double[] ranks) {
+        Comparator<Integer> byRank = Comparator.<Integer>comparingDouble(index -> ranks[index])
+                .thenComparing(index -> -ids[index]);
+        PriorityQueue<Integer> queue = new PriorityQueue<>(byRank);
+        for (int i = 0; i < ids.length; i++) {
+            if (queue.size() < TOP_SIZE) {
+                queue.add(i);
+            } else if (byRank.compare(i, queue.peek()) > 0) {
+                queue.poll();
+                queue.add(i);
+            }
+        }
+        return queue.stream()
+                .sorted(byRank.reversed())
+                .map(index -> ids[index])
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static class Graph {
+        private final int[] ids;
+        private final int[] outDegrees;
+        private final int[] offsets;
+        private final int[] sources;
+
+        Graph(int[] ids, int[] outDegrees, int[] offsets, int[] sources) {
+            this.ids = ids;
+            this.outDegrees = outDegrees;
+            this.offsets = offsets;
+            this.sources = sources;
+        }
+    }
+
+    private static class Scores {
+        private final int[] ids;
+        private final double[] ranks;
+        private final List<Integer> top;
+        private final Instant builtAt;
+
+        Scores(int[] ids, double[] ranks, List<Integer> top, Instant builtAt) {
+            this.ids = ids;
+            this.ranks = ranks;
+            this.top = top;
+            this.builtAt = builtAt;
+        }
+    }
+}
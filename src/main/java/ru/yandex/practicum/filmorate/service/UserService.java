@@ -2,52 +2,206 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.ChangePage;
+import ru.yandex.practicum.filmorate.model.EntityType;
+import ru.yandex.practicum.filmorate.model.FeedPage;
+import ru.yandex.practicum.filmorate.model.Suggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.model.UserPath;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    private static final int MAX_IDS = 500;
+
     @Qualifier("userDbStorage")
     private final UserStorage userStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserSuggestIndex userSuggestIndex;
+    private final FriendSuggestions friendSuggestions;
+    private final FriendPaths friendPaths;
+    private final UserInfluence userInfluence;
+    private final UserFeed userFeed;
+    private final ChangeLog changeLog;
+    private final SingleFlight<List<Object>, List<User>> friendsFlights = new SingleFlight<>("getFriends");
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage) {
+    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, ApplicationEventPublisher eventPublisher,
+                       UserSuggestIndex userSuggestIndex, FriendSuggestions friendSuggestions,
+                       FriendPaths friendPaths, UserInfluence userInfluence, UserFeed userFeed,
+                       ChangeLog changeLog) {
         this.userStorage = userStorage;
+        this.eventPublisher = eventPublisher;
+        this.userSuggestIndex = userSuggestIndex;
+        this.friendSuggestions = friendSuggestions;
+        this.friendPaths = friendPaths;
+        this.userInfluence = userInfluence;
+        this.userFeed = userFeed;
+        this.changeLog = changeLog;
     }
 
     public List<User> get() {
         return userStorage.get();
     }
 
+    public List<User> get(Set<UserField> fields) {
+        return userStorage.get(fields);
+    }
+
     public User create(User user) {
-        return userStorage.create(user);
+        User created = userStorage.create(user);
+        eventPublisher.publishEvent(new UserEvent(created, Operation.ADD));
+        return created;
     }
 
     public User update(User user) {
-        return userStorage.update(user);
+        User updated = userStorage.update(user);
+        eventPublisher.publishEvent(new UserEvent(updated, Operation.UPDATE));
+        return updated;
+    }
+
+    // версия для ETag, счётчик ведёт хранилище
+    public long getUserVersion(Integer userId) {
+        return userStorage.getVersion(userId);
     }
 
     public User getUserById(Integer userId) {
         return userStorage.getUserById(userId);
     }
 
+    public User getUserById(Integer userId, Set<UserField> fields) {
+        return userStorage.getUserById(userId, fields);
+    }
+
+    public BatchResult<User> getUsersByIds(List<Integer> userIds, Set<UserField> fields) {
+        if (userIds.isEmpty() || userIds.size() > MAX_IDS) {
+            throw new ValidationException();
+        }
+        return BatchResult.of(userIds, userStorage.getUsersByIds(new LinkedHashSet<>(userIds), fields));
+    }
+
+    public void checkUserExists(Integer userId) {
+        if (!userStorage.exists(userId)) {
+            throw new NotFoundException();
+        }
+    }
+
     public List<User> addToFriends(Integer userId, Integer friendId) {
-        return userStorage.addToFriends(userId, friendId);
+        if (userStorage.addFriend(userId, friendId)) {
+            eventPublisher.publishEvent(new FriendshipEvent(userId, friendId, Operation.ADD));
+        }
+        return userStorage.getFriends(userId); // вернём список всех друзей (включая нового друга с friendId)
     }
 
     public void deleteFromFriends(Integer userId, Integer friendId) {
-        userStorage.deleteFromFriends(userId, friendId);
+        if (userStorage.removeFriend(userId, friendId)) {
+            eventPublisher.publishEvent(new FriendshipEvent(userId, friendId, Operation.REMOVE));
+        }
     }
 
     public List<User> getFriends(Integer userId) {
-        return userStorage.getFriends(userId);
+        return getFriends(userId, UserField.ALL);
+    }
+
+    public List<User> getFriends(Integer userId, Set<UserField> fields) {
+        // версия коллекции в ключе: после любой записи новые запросы не присоединяются к начатой до неё загрузке
+        return friendsFlights.execute(List.of(userId, fields), userStorage.getVersion(),
+                () -> userStorage.getFriends(userId, fields));
+    }
+
+    // друзья друзей, которых пользователь ещё не добавил, с наибольшим числом общих друзей первыми
+    public List<User> getFriendSuggestions(Integer userId, Integer count, Set<UserField> fields) {
+        checkUserExists(userId);
+        if (count <= 0 || count > MAX_IDS) {
+            throw new ValidationException();
+        }
+        return getUsersInOrder(friendSuggestions.suggest(userId, count), fields);
+    }
+
+    // самые влиятельные пользователи по последнему фоновому пересчёту
+    public List<User> getTopUsers(Integer count, Set<UserField> fields) {
+        if (count <= 0 || count > UserInfluence.TOP_SIZE) {
+            throw new ValidationException();
+        }
+        return getUsersInOrder(userInfluence.getTop(count), fields);
+    }
+
+    // кратчайшая цепочка рукопожатий между пользователями
+    public UserPath getPath(Integer userId, Integer otherId, Integer maxDepth) {
+        checkUserExists(userId);
+        checkUserExists(otherId);
+        if (maxDepth <= 0 || maxDepth > FriendPaths.MAX_DEPTH) {
+            throw new ValidationException();
+        }
+        List<Integer> userIds = friendPaths.find(userId, otherId, maxDepth);
+        return UserPath.builder()
+                .distance(userIds.isEmpty() ? null : userIds.size() - 1)
+                .userIds(userIds)
+                .build();
+    }
+
+    // подсказки по началу логина, самые популярные первыми
+    public List<Suggestion> suggest(String prefix, Integer limit) {
+        if (prefix == null || prefix.isBlank() || limit <= 0) {
+            throw new ValidationException();
+        }
+        return userSuggestIndex.suggest(prefix, limit);
+    }
+
+    // лайки и новые друзья тех, кого пользователь добавил в друзья, от новых к старым
+    public FeedPage getFeed(Integer userId, Long cursor, Integer count) {
+        checkUserExists(userId);
+        if (count <= 0 || count > UserFeed.TIMELINE_SIZE) {
+            throw new ValidationException();
+        }
+        return userFeed.getFeed(userId, cursor, count);
+    }
+
+    // пользователи, изменённые после версии since, для синхронизации клиентов
+    public ChangePage<User> getChanges(Long since, Integer size, Set<UserField> fields) {
+        ChangePage<Integer> changes = changeLog.getChanges(EntityType.USER, since, size);
+        return ChangePage.<User>builder()
+                .entities(getUsersInOrder(changes.getEntities(), fields))
+                .version(changes.getVersion())
+                .hasMore(changes.isHasMore())
+                .build();
+    }
+
+    private List<User> getUsersInOrder(List<Integer> userIds, Set<UserField> fields) {
+        Map<Integer, User> users = userStorage.getUsersByIds(userIds, fields);
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    // склеенные одновременные запросы по ключам: имя запроса -> ключ -> счётчики
+    public Map<String, Map<String, SingleFlight.Stats>> getRequestStats() {
+        return Map.of(friendsFlights.getName(), friendsFlights.getReport());
     }
 
     public List<User> getCommonFriends(Integer userId, Integer friendId) {
         return userStorage.getCommonFriends(userId, friendId);
     }
+
+    public List<User> getCommonFriends(Integer userId, Integer friendId, Set<UserField> fields) {
+        return userStorage.getCommonFriends(userId, friendId, fields);
+    }
 }
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Автодополнение логинов пользователей, популярность — сколько пользователей добавили его в друзья
+@Slf4j
+@Component
+public class UserSuggestIndex {
+
+    static final int TOP_SIZE = 10;
+
+    private final UserStorage userStorage;
+    private final PrefixTrie trie = new PrefixTrie(TOP_SIZE);
+
+    @Autowired
+    public UserSuggestIndex(@Qualifier("userDbStorage") UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
+
+    @PostConstruct
+    void load() {
+        List<User> users = userStorage.get(EnumSet.of(UserField.ID, UserField.LOGIN, UserField.FRIENDS));
+        Map<Integer, Integer> followers = new HashMap<>();
+        users.forEach(user -> user.getFriends().keySet().forEach(friendId -> followers.merge(friendId, 1, Integer::sum)));
+        users.forEach(user -> trie.put(user.getId(), user.getLogin(), followers.getOrDefault(user.getId(), 0)));
+        log.info("Построено дерево подсказок по логинам, пользователей: {}", trie.size());
+    }
+
+    @EventListener
+    public void onUser(UserEvent event) {
+        trie.rename(event.getUser().getId(), event.getUser().getLogin());
+    }
+
+    @EventListener
+    public void onFriendship(FriendshipEvent event) {
+        trie.addScore(event.getFriendId(), event.getOperation() == Operation.REMOVE ? -1 : 1);
+    }
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, TOP_SIZE));
+    }
+}
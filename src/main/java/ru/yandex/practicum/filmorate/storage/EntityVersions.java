@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счётчики версий сущностей для ETag. Версия сущности — значение общего счётчика при её последнем изменении,
+// поэтому общий счётчик служит версией всей коллекции. Внутри транзакции версия растёт только после коммита:
+// иначе читатель успел бы получить новую версию вместе со старыми данными. 0 — сущность не менялась с запуска
+public class EntityVersions {
+
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    public void changed(int id) {
+        Transactions.afterCommit(() -> increment(id));
+    }
+
+    public long get(int id) {
+        return versions.getOrDefault(id, 0L);
+    }
+
+    public long get() {
+        return version.get();
+    }
+
+    private void increment(int id) {
+        long next = version.incrementAndGet();
+        versions.merge(id, next, Math::max);
+    }
+}
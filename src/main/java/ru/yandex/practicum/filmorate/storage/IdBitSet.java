@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Потокобезопасное множество положительных id сущностей поверх BitSet
+public class IdBitSet {
+
+    private final BitSet bits = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public boolean contains(int id) {
+        if (id <= 0) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return bits.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(int id) {
+        if (id <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            bits.set(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Iterable<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Integer id : ids) {
+                if (id != null && id > 0) {
+                    bits.set(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bits.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EntityChange;
+import ru.yandex.practicum.filmorate.model.EntityType;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@Qualifier("changeDbStorage")
+public class ChangeDbStorage implements ChangeStorage {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ChangeDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long add(EntityType type, Collection<Integer> entityIds) {
+        String sql = "insert into entity_changes (entity_type, entity_id, changed_at) values (?, ?, ?)";
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = entityIds.stream()
+                .map(entityId -> new Object[]{type.name(), entityId, now})
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(sql, rows);
+        Long version = jdbcTemplate.queryForObject("select max(version) from entity_changes", Long.class);
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public List<EntityChange> getChanges(EntityType type, long since, int limit) {
+        // перекрытые записи пропускаются проверкой по индексу (entity_type, entity_id, version), а страница
+        // читается по индексу (entity_type, version): работа ограничена размером страницы и не растёт с хвостом журнала
+        String sql = "select version, entity_id from entity_changes c where entity_type = ? and version > ? " +
+                "and not exists (select 1 from entity_changes n where n.entity_type = c.entity_type " +
+                "and n.entity_id = c.entity_id and n.version > c.version) order by version limit ?";
+        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, type.name(), since, limit);
+        List<EntityChange> changes = new ArrayList<>();
+        while (rows.next()) {
+            changes.add(EntityChange.builder()
+                    .version(rows.getLong("version"))
+                    .type(type)
+                    .entityId(rows.getInt("entity_id"))
+                    .build());
+        }
+        return changes;
+    }
+
+    @Override
+    public boolean hasChanges(EntityType type) {
+        String sql = "select entity_id from entity_changes where entity_type = ? limit 1";
+        return jdbcTemplate.queryForRowSet(sql, type.name()).next();
+    }
+
+    @Override
+    public int compact() {
+        String sql = "delete from entity_changes c where exists (select 1 from entity_changes n " +
+                "where n.entity_type = c.entity_type and n.entity_id = c.entity_id and n.version > c.version)";
+        int deleted = jdbcTemplate.update(sql);
+        log.info("Из журнала изменений удалено устаревших записей: {}", deleted);
+        return deleted;
+    }
+}
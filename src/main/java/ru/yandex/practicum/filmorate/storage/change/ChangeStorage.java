@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import ru.yandex.practicum.filmorate.model.EntityChange;
+import ru.yandex.practicum.filmorate.model.EntityType;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ChangeStorage {
+
+    // записывает изменения сущностей и возвращает версию последнего из них
+    long add(EntityType type, Collection<Integer> entityIds);
+
+    // сущности, изменённые после версии since, с версией последнего изменения, по возрастанию версии
+    List<EntityChange> getChanges(EntityType type, long since, int limit);
+
+    // есть ли в журнале хотя бы одна запись о сущностях этого типа
+    boolean hasChanges(EntityType type);
+
+    // удаляет записи, после которых у той же сущности есть более новые; возвращает число удалённых
+    int compact();
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.change;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.EntityChange;
+import ru.yandex.practicum.filmorate.model.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Component
+@Qualifier("inMemoryChangeStorage")
+public class InMemoryChangeStorage implements ChangeStorage {
+
+    private final List<EntityChange> changes = new ArrayList<>();
+    private long version;
+
+    @Override
+    public synchronized long add(EntityType type, Collection<Integer> entityIds) {
+        for (Integer entityId : entityIds) {
+            changes.add(EntityChange.builder()
+                    .version(++version)
+                    .type(type)
+                    .entityId(entityId)
+                    .build());
+        }
+        return version;
+    }
+
+    @Override
+    public synchronized List<EntityChange> getChanges(EntityType type, long since, int limit) {
+        Map<Integer, EntityChange> latest = new HashMap<>();
+        for (EntityChange change : changes) {
+            if (change.getType() == type && change.getVersion() > since) {
+                latest.put(change.getEntityId(), change);
+            }
+        }
+        return latest.values().stream()
+                .sorted(Comparator.comparingLong(EntityChange::getVersion))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public synchronized boolean hasChanges(EntityType type) {
+        return changes.stream().anyMatch(change -> change.getType() == type);
+    }
+
+    @Override
+    public synchronized int compact() {
+        Map<List<Object>, EntityChange> latest = new HashMap<>();
+        changes.forEach(change -> latest.put(List.of(change.getType(), change.getEntityId()), change));
+        int deleted = changes.size() - latest.size();
+        changes.retainAll(new HashSet<>(latest.values()));
+        return deleted;
+    }
+}
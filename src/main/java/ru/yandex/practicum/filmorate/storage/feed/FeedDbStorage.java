@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+import ru.yandex.practicum.filmorate.model.FeedEventType;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Slf4j
+@Component
+@Qualifier("feedDbStorage")
+public class FeedDbStorage implements FeedStorage {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public FeedDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public FeedEntry add(FeedEntry entry) {
+        if (entry.getTimestamp() == null) {
+            entry.setTimestamp(Instant.now());
+        }
+        String sql = "insert into feed_events (user_id, event_type, operation, entity_id, created_at) " +
+                "values (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sql, new String[]{"id"});
+            stmt.setInt(1, entry.getUserId());
+            stmt.setString(2, entry.getType().name());
+            stmt.setString(3, entry.getOperation().name());
+            stmt.setInt(4, entry.getEntityId());
+            stmt.setTimestamp(5, Timestamp.from(entry.getTimestamp()));
+            return stmt;
+        }, keyHolder);
+        entry.setId(keyHolder.getKey().longValue());
+        return entry;
+    }
+
+    @Override
+    public List<FeedEntry> getLatest(int limit) {
+        String sql = "select * from feed_events order by id desc limit ?";
+        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, limit);
+        List<FeedEntry> entries = new ArrayList<>();
+        while (rows.next()) {
+            entries.add(FeedEntry.builder()
+                    .id(rows.getLong("id"))
+                    .userId(rows.getInt("user_id"))
+                    .type(FeedEventType.valueOf(rows.getString("event_type")))
+                    .operation(Operation.valueOf(rows.getString("operation")))
+                    .entityId(rows.getInt("entity_id"))
+                    .timestamp(rows.getTimestamp("created_at").toInstant())
+                    .build());
+        }
+        Collections.reverse(entries);
+        log.info("Загружено записей журнала действий: {}", entries.size());
+        return entries;
+    }
+}
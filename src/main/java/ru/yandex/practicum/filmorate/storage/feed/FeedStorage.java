@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+
+import java.util.List;
+
+public interface FeedStorage {
+
+    // сохраняет запись и присваивает ей очередной id
+    FeedEntry add(FeedEntry entry);
+
+    // последние limit записей журнала по возрастанию id
+    List<FeedEntry> getLatest(int limit);
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Qualifier("inMemoryFeedStorage")
+public class InMemoryFeedStorage implements FeedStorage {
+
+    private final List<FeedEntry> entries = new ArrayList<>();
+
+    @Override
+    public synchronized FeedEntry add(FeedEntry entry) {
+        entry.setId(entries.size() + 1);
+        entries.add(entry);
+        return entry;
+    }
+
+    @Override
+    public synchronized List<FeedEntry> getLatest(int limit) {
+        return new ArrayList<>(entries.subList(Math.max(0, entries.size() - limit), entries.size()));
+    }
+}
@@ -5,77 +5,145 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.IdBitSet;
+import ru.yandex.practicum.filmorate.storage.Transactions;
 
+import javax.annotation.PostConstruct;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Component
 @Qualifier("filmDbStorage")
 public class FilmDbStorage implements FilmStorage {
 
+    private static final String LIKE_COUNT = "(SELECT count(*) FROM likes WHERE likes.film_id = films.id) like_count";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final IdBitSet knownIds = new IdBitSet(); // id фильмов, существование которых уже подтверждено
+    private final EntityVersions versions = new EntityVersions();
 
     @Autowired
     public FilmDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    void loadKnownIds() {
+        knownIds.addAll(jdbcTemplate.queryForList("select id from films", Integer.class));
+        log.info("Загружено id фильмов: {}", knownIds.size());
     }
 
     @Override
-    public List<Film> get() {
+    public List<Film> get(Set<FilmField> fields) {
         List<Film> films = new ArrayList<>();
-        String sql = "SELECT films.ID, films.NAME, films.DESCRIPTION, films.RELEASE_DATE, films.DURATION, " +
-            "films.RATING_ID, ratings.NAME rating_name FROM films LEFT JOIN RATINGS ON films.RATING_ID = ratings.ID";
+        String sql = "SELECT " + filmColumns(fields, LIKE_COUNT) + " FROM films" + ratingJoin(fields);
         SqlRowSet filmRows = jdbcTemplate.queryForRowSet(sql);
         while (filmRows.next()) {
-            Film film = makeFilm(filmRows);
+            Film film = makeFilm(filmRows, fields);
             films.add(film);
-            log.info("В список запроса получения всех фильмов добавлен фильм: {}", film);
+            log.trace("В список запроса получения всех фильмов добавлен фильм: {}", film);
         }
+        loadGenres(films, fields);
         log.info("Количество фильмов в базе: {}", films.size());
         return films;
     }
 
-    private Film makeFilm(SqlRowSet filmRows) {
-        int filmId = filmRows.getInt("id");
-        String releaseDate = filmRows.getString("release_date");
-        Rating filmRating = Rating.builder()
-                .id(filmRows.getInt("rating_id"))
-                .name(filmRows.getString("RATING_NAME"))
-                .build();
-        Film film = Film.builder()
-                .id(filmId)
-                .name(filmRows.getString("name"))
-                .description(filmRows.getString("description"))
-                .releaseDate(LocalDate.parse(releaseDate))
-                .duration(filmRows.getLong("duration"))
-                .likesByUsers(getLikes(filmId))
-                .genres(getFilmGenre(filmId))
-                .mpa(filmRating)
-                .build();
-        return film;
+    // в запрос попадают только колонки запрошенных полей, рейтинги присоединяются только ради mpa
+    private static String filmColumns(Set<FilmField> fields, String likeCountColumn) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("films.ID");
+        if (fields.contains(FilmField.NAME)) {
+            columns.add("films.NAME");
+        }
+        if (fields.contains(FilmField.DESCRIPTION)) {
+            columns.add("films.DESCRIPTION");
+        }
+        if (fields.contains(FilmField.RELEASE_DATE)) {
+            columns.add("films.RELEASE_DATE");
+        }
+        if (fields.contains(FilmField.DURATION)) {
+            columns.add("films.DURATION");
+        }
+        if (fields.contains(FilmField.MPA)) {
+            columns.add("films.RATING_ID, ratings.NAME rating_name");
+        }
+        if (fields.contains(FilmField.LIKE_COUNT)) {
+            columns.add(likeCountColumn);
+        }
+        return columns.toString();
     }
 
-    private Set<Genre> getFilmGenre(int filmId) {
-        Set<Genre> filmGenre = new HashSet<>();
-        String sql = "select * from genres where id in (select genre_id from film_genres where film_id = ?)";
-        SqlRowSet genreRows = jdbcTemplate.queryForRowSet(sql, filmId);
+    private static String ratingJoin(Set<FilmField> fields) {
+        return fields.contains(FilmField.MPA) ? " LEFT JOIN RATINGS ON films.RATING_ID = ratings.ID" : "";
+    }
+
+    private Film makeFilm(SqlRowSet filmRows, Set<FilmField> fields) {
+        Film.FilmBuilder film = Film.builder()
+                .id(filmRows.getInt("id"));
+        if (fields.contains(FilmField.NAME)) {
+            film.name(filmRows.getString("name"));
+        }
+        if (fields.contains(FilmField.DESCRIPTION)) {
+            film.description(filmRows.getString("description"));
+        }
+        if (fields.contains(FilmField.RELEASE_DATE)) {
+            film.releaseDate(LocalDate.parse(filmRows.getString("release_date")));
+        }
+        if (fields.contains(FilmField.DURATION)) {
+            film.duration(filmRows.getLong("duration"));
+        }
+        if (fields.contains(FilmField.LIKE_COUNT)) {
+            film.likeCount(filmRows.getInt("like_count"));
+        }
+        if (fields.contains(FilmField.MPA)) {
+            film.mpa(Rating.builder()
+                    .id(filmRows.getInt("rating_id"))
+                    .name(filmRows.getString("RATING_NAME"))
+                    .build());
+        }
+        return film.build();
+    }
+
+    // жанры всех фильмов списка загружаются одним запросом вместо запроса на каждый фильм
+    private void loadGenres(List<Film> films, Set<FilmField> fields) {
+        if (!fields.contains(FilmField.GENRES) || films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(new HashSet<>());
+            filmsById.put(film.getId(), film);
+        }
+        String sql = "select film_genres.film_id, genres.id, genres.name from film_genres " +
+                "join genres on film_genres.genre_id = genres.id where film_genres.film_id in (:ids)";
+        SqlRowSet genreRows = namedJdbcTemplate.queryForRowSet(sql, Map.of("ids", filmsById.keySet()));
         while (genreRows.next()) {
-            filmGenre.add(makeGenre(genreRows));
+            Film film = filmsById.get(genreRows.getInt("film_id"));
+            film.getGenres().add(makeGenre(genreRows));
         }
-        return filmGenre;
     }
 
     private Genre makeGenre(SqlRowSet genreRows) {
@@ -86,22 +154,10 @@ public class FilmDbStorage implements FilmStorage {
         return genre;
     }
 
-    private Set<Integer> getLikes(int filmId) {
-        Set<Integer> userLikes = new HashSet<>();
-        String sql = "select user_id from likes where film_id = ?";
-        SqlRowSet likesRows = jdbcTemplate.queryForRowSet(sql, filmId);
-        while (likesRows.next()) {
-            userLikes.add(likesRows.getInt("user_id"));
-        }
-        return userLikes;
-    }
-
     @Override
+    @Transactional
     public Film create(Film film) {
         validate(film);
-        if (film.getLikesByUsers() == null) {
-            film.setLikesByUsers(new HashSet<>());
-        }
         if (film.getGenres() == null) {
             film.setGenres(new HashSet<>());
         }
@@ -121,7 +177,11 @@ public class FilmDbStorage implements FilmStorage {
             }
         }, keyHolder);
         film.setId(keyHolder.getKey().intValue());
+        film.setLikeCount(0);
         addFilmGenres(film);
+        int filmId = film.getId();
+        Transactions.afterCommit(() -> knownIds.add(filmId)); // при откате id не должен считаться существующим
+        versions.changed(filmId);
         log.info("Добавлен новый фильм: {}", film);
         return film;
     }
@@ -147,11 +207,9 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
+    @Transactional
     public Film update(Film film) {
         validate(film);
-        if (film.getLikesByUsers() == null) {
-            film.setLikesByUsers(new HashSet<>());
-        }
         if (film.getGenres() == null) {
             film.setGenres(new HashSet<>());
         }
@@ -169,12 +227,8 @@ public class FilmDbStorage implements FilmStorage {
         if (totalUpdate == 0) {
             throw new NotFoundException();
         }
-        sqlQuery = "delete from likes where film_id = ? ";
-        jdbcTemplate.update(sqlQuery, filmId);
-        addFilmLikes(film);
-        sqlQuery = "delete from film_genres where film_id = ? ";
-        jdbcTemplate.update(sqlQuery, filmId);
-        addFilmGenres(film);
+        updateFilmGenres(filmId, film.getGenres());
+        versions.changed(filmId);
         log.info("Обновлено записей: {}", totalUpdate);
         return getFilmById(filmId);
     }
@@ -183,39 +237,64 @@ public class FilmDbStorage implements FilmStorage {
         String sqlQuery = "insert into film_genres (film_id, genre_id) " +
                 "values (?, ?)";
         int filmId = film.getId();
-        Set<Genre> genres = film.getGenres();
-        for (Genre genre : genres) {
-            int genreId = genre.getId();
-            int totalUpdate = jdbcTemplate.update(sqlQuery,
-                    filmId,
-                    genreId);
-            if (totalUpdate > 0) {
-                log.info("Фильму с id {} добавлен жанр с id {}", filmId, genreId);
+        List<Object[]> rows = new ArrayList<>();
+        for (Integer genreId : genreIds(film.getGenres())) {
+            rows.add(new Object[]{filmId, genreId});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sqlQuery, rows);
+            log.info("Фильму с id {} добавлено жанров: {}", filmId, rows.size());
+        }
+    }
+
+    private void updateFilmGenres(int filmId, Set<Genre> genres) {
+        String sql = "select genre_id from film_genres where film_id = ?";
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class, filmId));
+        writeDiff("delete from film_genres where film_id = ? and genre_id = ?",
+                "insert into film_genres (film_id, genre_id) values (?, ?)",
+                filmId, current, genreIds(genres));
+    }
+
+    // удаляем и добавляем только изменившиеся строки, каждую группу одним batch-запросом
+    private void writeDiff(String deleteSql, String insertSql, int filmId, Set<Integer> current, Set<Integer> actual) {
+        List<Object[]> removed = new ArrayList<>();
+        for (Integer id : current) {
+            if (!actual.contains(id)) {
+                removed.add(new Object[]{filmId, id});
+            }
+        }
+        List<Object[]> added = new ArrayList<>();
+        for (Integer id : actual) {
+            if (!current.contains(id)) {
+                added.add(new Object[]{filmId, id});
             }
         }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate(deleteSql, removed);
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, added);
+        }
+        log.debug("Для фильма с id {} удалено строк: {}, добавлено строк: {}", filmId, removed.size(), added.size());
     }
 
-    private void addFilmLikes(Film film) {
-        String sqlQuery = "insert into likes (film_id, user_id) " +
-                "values (?, ?)";
-        int filmId = film.getId();
-        Set<Integer> likesByUsers = film.getLikesByUsers();
-        for (Integer userId : likesByUsers) {
-            jdbcTemplate.update(sqlQuery,
-                    filmId,
-                    userId);
+    private static Set<Integer> genreIds(Set<Genre> genres) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (Genre genre : genres) {
+            ids.add(genre.getId());
         }
+        return ids;
     }
 
     @Override
-    public Film getFilmById(Integer filmId) {
-        String sql = "SELECT films.ID, films.NAME, films.DESCRIPTION, films.RELEASE_DATE, films.DURATION, " +
-                "films.RATING_ID, ratings.NAME rating_name FROM films LEFT JOIN RATINGS " +
-                "ON films.RATING_ID = ratings.ID where films.ID = ?";
+    public Film getFilmById(Integer filmId, Set<FilmField> fields) {
+        String sql = "SELECT " + filmColumns(fields, LIKE_COUNT) + " FROM films" + ratingJoin(fields) +
+                " WHERE films.ID = ?";
         SqlRowSet filmRows = jdbcTemplate.queryForRowSet(sql, filmId);
         if (filmRows.next()) {
-            Film film = makeFilm(filmRows);
-            log.info("Найден фильм в базе: {}", film);
+            Film film = makeFilm(filmRows, fields);
+            loadGenres(List.of(film), fields);
+            log.debug("Найден фильм в базе: {}", film);
             return film;
         } else {
             log.info("В списке отсутствует фильм с id: {}", filmId);
@@ -224,32 +303,136 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(Integer filmId, Integer userId) {
-        Film film = getFilmById(filmId);
-        film.addLike(userId);
-        update(film);
-        log.info("Добавлен like от пользователя c id {} для фильма: {}", userId, film);
+    public Map<Integer, Film> getFilmsByIds(Collection<Integer> filmIds, Set<FilmField> fields) {
+        Map<Integer, Film> films = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return films;
+        }
+        String sql = "SELECT " + filmColumns(fields, LIKE_COUNT) + " FROM films" + ratingJoin(fields) +
+                " WHERE films.ID in (:ids)";
+        SqlRowSet filmRows = namedJdbcTemplate.queryForRowSet(sql, Map.of("ids", filmIds));
+        while (filmRows.next()) {
+            Film film = makeFilm(filmRows, fields);
+            films.put(film.getId(), film);
+        }
+        loadGenres(new ArrayList<>(films.values()), fields);
+        log.info("Найдено фильмов по списку id: {} из {}", films.size(), filmIds.size());
+        return films;
+    }
+
+    @Override
+    public boolean exists(Integer filmId) {
+        if (filmId == null) {
+            return false;
+        }
+        if (knownIds.contains(filmId)) {
+            return true;
+        }
+        // фильм мог быть добавлен в обход этого экземпляра, проверяем по первичному ключу
+        boolean exists = !jdbcTemplate.queryForList("select 1 from films where id = ?", Integer.class, filmId).isEmpty();
+        if (exists) {
+            knownIds.add(filmId);
+        }
+        return exists;
     }
 
     @Override
-    public void deleteLike(Integer filmId, Integer userId) {
-        Film film = getFilmById(filmId);
-        film.deleteLike(userId);
-        update(film);
+    public boolean addLike(Integer filmId, Integer userId) {
+        checkExists(filmId);
+        String sqlQuery = "insert into likes (film_id, user_id, created_at) select ?, ?, CURRENT_TIMESTAMP " +
+                "where not exists (select 1 from likes where film_id = ? and user_id = ?)";
+        int totalUpdate = jdbcTemplate.update(sqlQuery, filmId, userId, filmId, userId);
+        if (totalUpdate > 0) {
+            versions.changed(filmId);
+        }
+        log.info("Добавлен like от пользователя c id {} для фильма с id {}", userId, filmId);
+        return totalUpdate > 0;
+    }
+
+    @Override
+    public boolean deleteLike(Integer filmId, Integer userId) {
+        checkExists(filmId);
+        int totalUpdate = jdbcTemplate.update("delete from likes where film_id = ? and user_id = ?", filmId, userId);
+        if (totalUpdate > 0) {
+            versions.changed(filmId);
+        }
+        log.info("Удалён like от пользователя c id {} для фильма с id {}", userId, filmId);
+        return totalUpdate > 0;
+    }
+
+    @Override
+    public long getVersion(Integer filmId) {
+        return versions.get(filmId);
+    }
+
+    @Override
+    public long getVersion() {
+        return versions.get();
+    }
+
+    @Override
+    public List<Integer> getLikes(Integer filmId, Integer afterUserId, Integer size) {
+        checkExists(filmId);
+        String sql = "select user_id from likes where film_id = ? and user_id > ? order by user_id limit ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, filmId, afterUserId, size);
+    }
+
+    @Override
+    public List<Integer> getLikedFilms(Integer userId, Integer afterFilmId, Integer size) {
+        String sql = "select film_id from likes where user_id = ? and film_id > ? order by film_id limit ?";
+        return jdbcTemplate.queryForList(sql, Integer.class, userId, afterFilmId, size);
+    }
+
+    @Override
+    public boolean hasLike(Integer filmId, Integer userId) {
+        return !jdbcTemplate.queryForList("select 1 from likes where film_id = ? and user_id = ?", Integer.class,
+                filmId, userId).isEmpty();
+    }
+
+    @Override
+    public Instant getLikedAt(Integer filmId, Integer userId) {
+        List<Timestamp> likedAt = jdbcTemplate.queryForList(
+                "select created_at from likes where film_id = ? and user_id = ?", Timestamp.class, filmId, userId);
+        return likedAt.isEmpty() || likedAt.get(0) == null ? null : likedAt.get(0).toInstant();
+    }
+
+    @Override
+    public Map<Integer, List<Instant>> getLikeTimesSince(Instant since) {
+        Map<Integer, List<Instant>> likeTimes = new HashMap<>();
+        SqlRowSet rows = jdbcTemplate.queryForRowSet(
+                "select film_id, created_at from likes where created_at >= ?", Timestamp.from(since));
+        while (rows.next()) {
+            likeTimes.computeIfAbsent(rows.getInt("film_id"), id -> new ArrayList<>())
+                    .add(rows.getTimestamp("created_at").toInstant());
+        }
+        return likeTimes;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        jdbcTemplate.query("select film_id, user_id from likes",
+                (RowCallbackHandler) rs -> consumer.accept(rs.getInt("film_id"), rs.getInt("user_id")));
+    }
+
+    private void checkExists(Integer filmId) {
+        if (!exists(filmId)) {
+            log.info("В списке отсутствует фильм с id: {}", filmId);
+            throw new NotFoundException();
+        }
     }
 
     @Override
-    public List<Film> getPopularFilms(Integer count) {
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
         List<Film> films = new ArrayList<>();
-        String sql = "SELECT films.ID, films.NAME, films.DESCRIPTION, films.RELEASE_DATE, films.DURATION," +
-                "films.RATING_ID, ratings.NAME rating_name FROM films " +
-                "LEFT JOIN RATINGS ON films.RATING_ID = ratings.ID LEFT JOIN " +
+        String sql = "SELECT " + filmColumns(fields, "IFNULL(top_films.TOP, 0) like_count") + " FROM films" +
+                ratingJoin(fields) + " LEFT JOIN " +
                 "(SELECT film_id, count(user_id) top FROM LIKES GROUP BY film_id) top_films " +
                 "ON films.ID = top_films.film_id ORDER BY IFNULL(top_films.TOP, 0) DESC LIMIT ?";
         SqlRowSet filmRows = jdbcTemplate.queryForRowSet(sql, count);
         while (filmRows.next()) {
-            films.add(makeFilm(filmRows));
+            films.add(makeFilm(filmRows, fields));
         }
+        loadGenres(films, fields);
         log.info("Количество популярных фильмов: {}", films.size());
         return films;
     }
@@ -1,22 +1,70 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 public interface FilmStorage {
 
-    List<Film> get();
+    default List<Film> get() {
+        return get(FilmField.ALL);
+    }
+
+    // поля, не вошедшие в fields, не загружаются и остаются пустыми
+    List<Film> get(Set<FilmField> fields);
 
     Film create(Film film);
 
     Film update(Film film);
 
-    Film getFilmById(Integer filmId);
+    default Film getFilmById(Integer filmId) {
+        return getFilmById(filmId, FilmField.ALL);
+    }
+
+    Film getFilmById(Integer filmId, Set<FilmField> fields);
+
+    // найденные фильмы по id, отсутствующие id в результат не попадают
+    Map<Integer, Film> getFilmsByIds(Collection<Integer> filmIds, Set<FilmField> fields);
+
+    boolean exists(Integer filmId);
+
+    // true, если лайка ещё не было и он добавлен
+    boolean addLike(Integer filmId, Integer userId);
+
+    // true, если лайк был и он удалён
+    boolean deleteLike(Integer filmId, Integer userId);
+
+    List<Integer> getLikes(Integer filmId, Integer afterUserId, Integer size);
+
+    // id фильмов, которые лайкнул пользователь, по возрастанию, начиная после afterFilmId
+    List<Integer> getLikedFilms(Integer userId, Integer afterFilmId, Integer size);
+
+    boolean hasLike(Integer filmId, Integer userId);
+
+    // время лайка или null, если лайка нет или он поставлен до появления отметок времени
+    Instant getLikedAt(Integer filmId, Integer userId);
+
+    // времена лайков, поставленных не раньше since, по id фильма
+    Map<Integer, List<Instant>> getLikeTimesSince(Instant since);
+
+    // версия фильма для ETag: растёт при каждом его изменении, включая лайки
+    long getVersion(Integer filmId);
+
+    // версия каталога: растёт при любом изменении фильмов и лайков
+    long getVersion();
 
-    void addLike(Integer filmId, Integer userId);
+    // обход всех лайков парами (id фильма, id пользователя) без загрузки их списком
+    void forEachLike(BiConsumer<Integer, Integer> consumer);
 
-    void deleteLike(Integer filmId, Integer userId);
+    default List<Film> getPopularFilms(Integer count) {
+        return getPopularFilms(count, FilmField.ALL);
+    }
 
-    List<Film> getPopularFilms(Integer count);
+    List<Film> getPopularFilms(Integer count, Set<FilmField> fields);
 }
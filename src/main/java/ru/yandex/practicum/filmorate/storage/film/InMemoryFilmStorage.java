@@ -6,12 +6,23 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,10 +31,14 @@ import java.util.stream.Collectors;
 public class InMemoryFilmStorage implements FilmStorage {
 
     private final Map<Integer, Film> films = new HashMap<>();
+    private final Map<Integer, NavigableMap<Integer, Instant>> likes = new HashMap<>(); // id фильма -> id пользователя -> время лайка
+    private final Map<Integer, NavigableSet<Integer>> likedFilms = new HashMap<>(); // id пользователя -> id фильмов
+    private final EntityVersions versions = new EntityVersions();
     private int id;
 
+    // фильмы хранятся целиком, поэтому набор полей на загрузку не влияет
     @Override
-    public List<Film> get() {
+    public List<Film> get(Set<FilmField> fields) {
         log.debug("Текущее количество фильмов: {}", films.size());
         return films.values().parallelStream().collect(Collectors.toList());
     }
@@ -32,10 +47,10 @@ public class InMemoryFilmStorage implements FilmStorage {
     public Film create(Film film) {
         validate(film);
         film.setId(++this.id);
-        if (film.getLikesByUsers() == null) {
-            film.setLikesByUsers(new HashSet<Integer>());
-        }
+        film.setLikeCount(0);
         films.put(film.getId(), film);
+        likes.put(film.getId(), new TreeMap<>());
+        versions.changed(film.getId());
         log.debug("Добавлен новый фильм: {}", film);
         return film;
     }
@@ -48,16 +63,15 @@ public class InMemoryFilmStorage implements FilmStorage {
             log.debug("Не найден фильм в списке с id: {}", filmId);
             throw new NotFoundException();
         }
-        if (film.getLikesByUsers() == null) {
-            film.setLikesByUsers(new HashSet<Integer>());
-        }
+        film.setLikeCount(likes.get(filmId).size());
         films.put(filmId, film);
+        versions.changed(filmId);
         log.debug("Обновлены данные фильма с id {}. Новые данные: {}", filmId, film);
         return film;
     }
 
     @Override
-    public Film getFilmById(Integer filmId) {
+    public Film getFilmById(Integer filmId, Set<FilmField> fields) {
         if (films.containsKey(filmId)) {
             return films.get(filmId);
         } else {
@@ -65,6 +79,23 @@ public class InMemoryFilmStorage implements FilmStorage {
         }
     }
 
+    @Override
+    public Map<Integer, Film> getFilmsByIds(Collection<Integer> filmIds, Set<FilmField> fields) {
+        Map<Integer, Film> found = new HashMap<>();
+        for (Integer filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                found.put(filmId, film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean exists(Integer filmId) {
+        return films.containsKey(filmId);
+    }
+
     private static void validate(Film film) {
         String name = film.getName();
         String description = film.getDescription();
@@ -86,21 +117,88 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(Integer filmId, Integer userId) {
+    public boolean addLike(Integer filmId, Integer userId) {
         Film film = getFilmById(filmId);
-        film.addLike(userId);
-        update(film);
+        NavigableMap<Integer, Instant> filmLikes = likes.get(filmId);
+        boolean added = filmLikes.putIfAbsent(userId, Instant.now()) == null;
+        if (added) {
+            likedFilms.computeIfAbsent(userId, id -> new TreeSet<>()).add(filmId);
+            versions.changed(filmId);
+        }
+        film.setLikeCount(filmLikes.size());
+        return added;
     }
 
     @Override
-    public void deleteLike(Integer filmId, Integer userId) {
+    public boolean deleteLike(Integer filmId, Integer userId) {
         Film film = getFilmById(filmId);
-        film.deleteLike(userId);
-        update(film);
+        NavigableMap<Integer, Instant> filmLikes = likes.get(filmId);
+        boolean removed = filmLikes.remove(userId) != null;
+        if (removed) {
+            NavigableSet<Integer> userLikes = likedFilms.get(userId);
+            userLikes.remove(filmId);
+            if (userLikes.isEmpty()) {
+                likedFilms.remove(userId);
+            }
+            versions.changed(filmId);
+        }
+        film.setLikeCount(filmLikes.size());
+        return removed;
+    }
+
+    @Override
+    public long getVersion(Integer filmId) {
+        return versions.get(filmId);
+    }
+
+    @Override
+    public long getVersion() {
+        return versions.get();
+    }
+
+    @Override
+    public List<Integer> getLikes(Integer filmId, Integer afterUserId, Integer size) {
+        getFilmById(filmId);
+        return likes.get(filmId).tailMap(afterUserId, false).keySet().stream()
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Integer> getLikedFilms(Integer userId, Integer afterFilmId, Integer size) {
+        return likedFilms.getOrDefault(userId, Collections.emptyNavigableSet()).tailSet(afterFilmId, false).stream()
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean hasLike(Integer filmId, Integer userId) {
+        NavigableMap<Integer, Instant> filmLikes = likes.get(filmId);
+        return filmLikes != null && filmLikes.containsKey(userId);
+    }
+
+    @Override
+    public Instant getLikedAt(Integer filmId, Integer userId) {
+        NavigableMap<Integer, Instant> filmLikes = likes.get(filmId);
+        return filmLikes == null ? null : filmLikes.get(userId);
+    }
+
+    @Override
+    public Map<Integer, List<Instant>> getLikeTimesSince(Instant since) {
+        Map<Integer, List<Instant>> likeTimes = new HashMap<>();
+        likes.forEach((filmId, filmLikes) -> filmLikes.values().stream()
+                .filter(likedAt -> !likedAt.isBefore(since))
+                .forEach(likedAt -> likeTimes.computeIfAbsent(filmId, id -> new ArrayList<>()).add(likedAt)));
+        return likeTimes;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Integer, Integer> consumer) {
+        likes.forEach((filmId, filmLikes) -> filmLikes.keySet().forEach(userId -> consumer.accept(filmId, userId)));
     }
 
     @Override
-    public List<Film> getPopularFilms(Integer count) {
+    public List<Film> getPopularFilms(Integer count, Set<FilmField> fields) {
         return films.values().stream()
                 .sorted((f0, f1) -> compare(f0, f1))
                 .limit(count)
@@ -108,7 +206,7 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     private int compare(Film f0, Film f1) {
-        int result = f1.getLikesByUsers().size() - f0.getLikesByUsers().size();
+        int result = f1.getLikeCount() - f0.getLikeCount();
         return result;
     }
 }
@@ -6,6 +6,8 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -17,10 +19,12 @@ import java.util.stream.Collectors;
 public class InMemoryUserStorage implements UserStorage {
 
     private final Map<Integer, User> users = new HashMap<>();
+    private final EntityVersions versions = new EntityVersions();
     private int id;
 
+    // пользователи хранятся целиком, поэтому набор полей на загрузку не влияет
     @Override
-    public List<User> get() {
+    public List<User> get(Set<UserField> fields) {
         log.info("Текущее количество пользователей: {}", users.size());
         return users.values().parallelStream().collect(Collectors.toList());
     }
@@ -39,6 +43,7 @@ public class InMemoryUserStorage implements UserStorage {
             user.setFriends(new HashMap<>());
         }
         users.put(user.getId(), user);
+        versions.changed(user.getId());
         log.info("Добавлен новый пользователь: {}", user);
         return user;
     }
@@ -55,12 +60,13 @@ public class InMemoryUserStorage implements UserStorage {
             user.setFriends(new HashMap<>());
         }
         users.put(userId, user);
+        versions.changed(userId);
         log.info("Обновлены данные пользователя с id {}. Новые данные: {}", userId, user);
         return user;
     }
 
     @Override
-    public User getUserById(Integer userId) {
+    public User getUserById(Integer userId, Set<UserField> fields) {
         if (users.containsKey(userId)) {
             return users.get(userId);
         } else {
@@ -68,6 +74,23 @@ public class InMemoryUserStorage implements UserStorage {
         }
     }
 
+    @Override
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds, Set<UserField> fields) {
+        Map<Integer, User> found = new HashMap<>();
+        for (Integer userId : userIds) {
+            User user = users.get(userId);
+            if (user != null) {
+                found.put(userId, user);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean exists(Integer userId) {
+        return users.containsKey(userId);
+    }
+
     private static void validate(User user) {
         String email = user.getEmail();
         String login = user.getLogin();
@@ -85,29 +108,40 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     @Override
-    public List<User> addToFriends(Integer userId, Integer friendId) {
+    public boolean addFriend(Integer userId, Integer friendId) {
         User user = getUserById(userId);
         User friend = getUserById(friendId);
+        boolean added = !user.getFriends().containsKey(friendId);
         user.addFriend(friendId);
         friend.addFriend(userId);
         update(user);
         update(friend);
-        Set<Integer> friendsId = user.getFriends().keySet();
-        List<User> friends = new ArrayList<>();
-        for (Integer id : friendsId) {
-            friends.add(getUserById(id));
-        }
-        return friends;
+        return added;
     }
 
     @Override
-    public void deleteFromFriends(Integer userId, Integer friendId) {
+    public boolean removeFriend(Integer userId, Integer friendId) {
         User user = getUserById(userId);
+        boolean removed = user.getFriends().containsKey(friendId);
         user.deleteFromFriends(friendId);
+        if (removed) {
+            versions.changed(userId);
+        }
+        return removed;
+    }
+
+    @Override
+    public long getVersion(Integer userId) {
+        return versions.get(userId);
+    }
+
+    @Override
+    public long getVersion() {
+        return versions.get();
     }
 
     @Override
-    public List<User> getFriends(Integer userId) {
+    public List<User> getFriends(Integer userId, Set<UserField> fields) {
         List<User> friends = new ArrayList<>();
         User user = getUserById(userId);
         Set<Integer> friendsId = user.getFriends().keySet();
@@ -118,7 +152,7 @@ public class InMemoryUserStorage implements UserStorage {
     }
 
     @Override
-    public List<User> getCommonFriends(Integer userId, Integer friendId) {
+    public List<User> getCommonFriends(Integer userId, Integer friendId, Set<UserField> fields) {
         List<User> friends = new ArrayList<>();
         User user = getUserById(userId);
         Set<Integer> userFriendsId = user.getFriends().keySet();
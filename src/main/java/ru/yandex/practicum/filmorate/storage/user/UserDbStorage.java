@@ -5,14 +5,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.IdBitSet;
+import ru.yandex.practicum.filmorate.storage.Transactions;
 
+import javax.annotation.PostConstruct;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -26,43 +33,92 @@ import java.util.*;
 public class UserDbStorage implements UserStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final IdBitSet knownIds = new IdBitSet(); // id пользователей, существование которых уже подтверждено
+    private final EntityVersions versions = new EntityVersions();
 
     @Autowired
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @PostConstruct
+    void loadKnownIds() {
+        knownIds.addAll(jdbcTemplate.queryForList("select id from users", Integer.class));
+        log.info("Загружено id пользователей: {}", knownIds.size());
     }
 
     @Override
-    public List<User> get() {
+    public List<User> get(Set<UserField> fields) {
         List<User> users = new ArrayList<>();
-        String sql = "select * from users";
+        String sql = "select " + userColumns(fields) + " from users";
         SqlRowSet userRows = jdbcTemplate.queryForRowSet(sql);
         while (userRows.next()) {
-            users.add(makeUser(userRows));
+            users.add(makeUser(userRows, fields));
         }
+        loadFriendships(users, fields);
         log.info("Количество пользователей в базе: {}", users.size());
         return users;
     }
 
-    private User makeUser(SqlRowSet userRows) {
-        int userId = userRows.getInt("id");
-        Map<Integer, Boolean> friendships = new HashMap<>();
-        String sql = "select friend_id, status from friendships where user_id = ?";
-        SqlRowSet friendshipRows = jdbcTemplate.queryForRowSet(sql, userId);
+    // в запрос попадают только колонки запрошенных полей
+    private static String userColumns(Set<UserField> fields) {
+        StringJoiner columns = new StringJoiner(", ");
+        columns.add("id");
+        if (fields.contains(UserField.EMAIL)) {
+            columns.add("email");
+        }
+        if (fields.contains(UserField.LOGIN)) {
+            columns.add("login");
+        }
+        if (fields.contains(UserField.NAME)) {
+            columns.add("name");
+        }
+        if (fields.contains(UserField.BIRTHDAY)) {
+            columns.add("birthday");
+        }
+        return columns.toString();
+    }
+
+    private User makeUser(SqlRowSet userRows, Set<UserField> fields) {
+        User.UserBuilder user = User.builder()
+                .id(userRows.getInt("id"));
+        if (fields.contains(UserField.EMAIL)) {
+            user.email(userRows.getString("email"));
+        }
+        if (fields.contains(UserField.LOGIN)) {
+            user.login(userRows.getString("login"));
+        }
+        if (fields.contains(UserField.NAME)) {
+            user.name(userRows.getString("name"));
+        }
+        if (fields.contains(UserField.BIRTHDAY)) {
+            user.birthday(userRows.getDate("birthday").toLocalDate());
+        }
+        return user.build();
+    }
+
+    // дружбы всех пользователей списка загружаются одним запросом вместо запроса на каждого пользователя
+    private void loadFriendships(List<User> users, Set<UserField> fields) {
+        if (!fields.contains(UserField.FRIENDS) || users.isEmpty()) {
+            return;
+        }
+        Map<Integer, User> usersById = new HashMap<>();
+        for (User user : users) {
+            user.setFriends(new HashMap<>());
+            usersById.put(user.getId(), user);
+        }
+        String sql = "select user_id, friend_id, status from friendships where user_id in (:ids)";
+        SqlRowSet friendshipRows = namedJdbcTemplate.queryForRowSet(sql, Map.of("ids", usersById.keySet()));
         while (friendshipRows.next()) {
-            friendships.put(friendshipRows.getInt("friend_id"), friendshipRows.getBoolean("status"));
+            User user = usersById.get(friendshipRows.getInt("user_id"));
+            user.getFriends().put(friendshipRows.getInt("friend_id"), friendshipRows.getBoolean("status"));
         }
-        return User.builder()
-                .id(userId)
-                .email(userRows.getString("email"))
-                .login(userRows.getString("login"))
-                .name(userRows.getString("name"))
-                .birthday(userRows.getDate("birthday").toLocalDate())
-                .friends(friendships)
-                .build();
     }
 
     @Override
+    @Transactional
     public User create(User user) {
         validate(user);
         String name = user.getName();
@@ -90,6 +146,9 @@ public class UserDbStorage implements UserStorage {
         }, keyHolder);
         user.setId(keyHolder.getKey().intValue());
         createFriendships(user.getId(), user.getFriends());
+        int userId = user.getId();
+        Transactions.afterCommit(() -> knownIds.add(userId)); // при откате id не должен считаться существующим
+        versions.changed(userId);
         log.info("Добавлен новый пользователь: {}", user);
         return user;
     }
@@ -97,11 +156,12 @@ public class UserDbStorage implements UserStorage {
     private void createFriendships(int userId, Map<Integer, Boolean> friends) {
         String sqlFriends = "insert into friendships (user_id, friend_id, status) " +
                 "values (?, ?, ?)";
+        List<Object[]> rows = new ArrayList<>();
         for (Map.Entry<Integer, Boolean> entry : friends.entrySet()) {
-            jdbcTemplate.update(sqlFriends,
-                    userId,
-                    entry.getKey(),
-                    entry.getValue());
+            rows.add(new Object[]{userId, entry.getKey(), entry.getValue()});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sqlFriends, rows);
         }
     }
 
@@ -122,6 +182,7 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    @Transactional
     public User update(User user) {
         validate(user);
         int userId = user.getId();
@@ -141,33 +202,59 @@ public class UserDbStorage implements UserStorage {
             log.info("Не найден пользователь в списке с id: {}", userId);
             throw new NotFoundException();
         }
-        sqlQuery = "delete from friendships where user_id = ? ";
-        jdbcTemplate.update(sqlQuery, userId);
-        addFriendship(user);
+        updateFriendships(user);
+        versions.changed(userId);
         log.info("Обновлены данные пользователя с id {}. Новые данные: {}", userId, user);
         return user;
     }
 
-    private void addFriendship(User user) {
-        String sqlQuery = "insert into friendships (user_id, friend_id, status) " +
-                "values (?, ?, ?)";
+    // удаляем, добавляем и обновляем только изменившиеся дружбы, каждую группу одним batch-запросом
+    private void updateFriendships(User user) {
         int userId = user.getId();
         Map<Integer, Boolean> friends = user.getFriends();
+        Map<Integer, Boolean> current = new HashMap<>();
+        String sql = "select friend_id, status from friendships where user_id = ?";
+        SqlRowSet friendshipRows = jdbcTemplate.queryForRowSet(sql, userId);
+        while (friendshipRows.next()) {
+            current.put(friendshipRows.getInt("friend_id"), friendshipRows.getBoolean("status"));
+        }
+        List<Object[]> removed = new ArrayList<>();
+        for (Integer friendId : current.keySet()) {
+            if (!friends.containsKey(friendId)) {
+                removed.add(new Object[]{userId, friendId});
+            }
+        }
+        List<Object[]> added = new ArrayList<>();
+        List<Object[]> changed = new ArrayList<>();
         for (Map.Entry<Integer, Boolean> friendship : friends.entrySet()) {
-            jdbcTemplate.update(sqlQuery,
-                    userId,
-                    friendship.getKey(),
-                    friendship.getValue());
+            Integer friendId = friendship.getKey();
+            if (!current.containsKey(friendId)) {
+                added.add(new Object[]{userId, friendId, friendship.getValue()});
+            } else if (!Objects.equals(current.get(friendId), friendship.getValue())) {
+                changed.add(new Object[]{friendship.getValue(), userId, friendId});
+            }
         }
+        if (!removed.isEmpty()) {
+            jdbcTemplate.batchUpdate("delete from friendships where user_id = ? and friend_id = ?", removed);
+        }
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into friendships (user_id, friend_id, status) values (?, ?, ?)", added);
+        }
+        if (!changed.isEmpty()) {
+            jdbcTemplate.batchUpdate("update friendships set status = ? where user_id = ? and friend_id = ?", changed);
+        }
+        log.debug("Для пользователя с id {} удалено дружб: {}, добавлено: {}, изменено: {}",
+                userId, removed.size(), added.size(), changed.size());
     }
 
     @Override
-    public User getUserById(Integer userId) {
-        String sql = "select * from users where id = ?";
+    public User getUserById(Integer userId, Set<UserField> fields) {
+        String sql = "select " + userColumns(fields) + " from users where id = ?";
         SqlRowSet userRows = jdbcTemplate.queryForRowSet(sql, userId);
         if (userRows.next()) {
-            User user = makeUser(userRows);
-            log.info("Найден пользователь в базе: {}", user);
+            User user = makeUser(userRows, fields);
+            loadFriendships(List.of(user), fields);
+            log.debug("Найден пользователь в базе: {}", user);
             return user;
         } else {
             log.info("В списке отсутствует пользователь с id: {}", userId);
@@ -176,48 +263,110 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public List<User> addToFriends(Integer userId, Integer friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.addFriend(friendId);
-        update(user);
-        return getFriends(userId); // вернём список всех друзей (включая нового друга с friendId) пользователя с userId
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds, Set<UserField> fields) {
+        Map<Integer, User> users = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return users;
+        }
+        String sql = "select " + userColumns(fields) + " from users where id in (:ids)";
+        SqlRowSet userRows = namedJdbcTemplate.queryForRowSet(sql, Map.of("ids", userIds));
+        while (userRows.next()) {
+            User user = makeUser(userRows, fields);
+            users.put(user.getId(), user);
+        }
+        loadFriendships(new ArrayList<>(users.values()), fields);
+        log.info("Найдено пользователей по списку id: {} из {}", users.size(), userIds.size());
+        return users;
+    }
+
+    @Override
+    public boolean exists(Integer userId) {
+        if (userId == null) {
+            return false;
+        }
+        if (knownIds.contains(userId)) {
+            return true;
+        }
+        // пользователь мог быть добавлен в обход этого экземпляра, проверяем по первичному ключу
+        boolean exists = !jdbcTemplate.queryForList("select 1 from users where id = ?", Integer.class, userId).isEmpty();
+        if (exists) {
+            knownIds.add(userId);
+        }
+        return exists;
+    }
+
+    private void checkExists(Integer userId) {
+        if (!exists(userId)) {
+            log.info("В списке отсутствует пользователь с id: {}", userId);
+            throw new NotFoundException();
+        }
+    }
+
+    @Override
+    public boolean addFriend(Integer userId, Integer friendId) {
+        checkExists(userId);
+        checkExists(friendId);
+        String sqlQuery = "insert into friendships (user_id, friend_id, status) select ?, ?, false " +
+                "where not exists (select 1 from friendships where user_id = ? and friend_id = ?)";
+        boolean added = jdbcTemplate.update(sqlQuery, userId, friendId, userId, friendId) > 0;
+        if (added) {
+            versions.changed(userId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriend(Integer userId, Integer friendId) {
+        checkExists(userId);
+        checkExists(friendId);
+        boolean removed = jdbcTemplate.update("delete from friendships where user_id = ? and friend_id = ?",
+                userId, friendId) > 0;
+        if (removed) {
+            versions.changed(userId);
+        }
+        return removed;
+    }
+
+    @Override
+    public long getVersion(Integer userId) {
+        return versions.get(userId);
     }
 
     @Override
-    public void deleteFromFriends(Integer userId, Integer friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-        user.deleteFromFriends(friendId);
-        update(user);
+    public long getVersion() {
+        return versions.get();
     }
 
     @Override
-    public List<User> getFriends(Integer userId) {
+    public List<User> getFriends(Integer userId, Set<UserField> fields) {
         List<User> friends = new ArrayList<>();
-        String sqlQuery = "select * from users where id in (select distinct friend_id id from friendships where user_id = ?)";
+        String sqlQuery = "select " + userColumns(fields) + " from users " +
+                "where id in (select distinct friend_id id from friendships where user_id = ?) order by id";
         SqlRowSet friendshipRows = jdbcTemplate.queryForRowSet(sqlQuery, userId);
         while (friendshipRows.next()) {
-            User user = makeUser(friendshipRows);
+            User user = makeUser(friendshipRows, fields);
             friends.add(user);
-            log.info("В список друзей добавлен пользователь: {}", user);
+            log.trace("В список друзей добавлен пользователь: {}", user);
         }
+        loadFriendships(friends, fields);
         log.info("Количество пользователей в списке друзей: {}", friends.size());
         return friends;
     }
 
     @Override
-    public List<User> getCommonFriends(Integer userId, Integer friendId) {
+    public List<User> getCommonFriends(Integer userId, Integer friendId, Set<UserField> fields) {
         List<User> commonFriends = new ArrayList<>();
-        String sqlQuery = "select * from users where id in (select friend_id from friendships where user_id = ? and friend_id in " +
-            "(select distinct friend_id from friendships where user_id = ?))";
+        String sqlQuery = "select " + userColumns(fields) + " from users where id in " +
+                "(select friend_id from friendships where user_id = ? and friend_id in " +
+                "(select distinct friend_id from friendships where user_id = ?)) order by id";
         SqlRowSet friendsRows = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        if (friendsRows.next()) {
-            User user = makeUser(friendsRows);
+        while (friendsRows.next()) {
+            User user = makeUser(friendsRows, fields);
             commonFriends.add(user);
-            log.info("В общий список друзей добавлен пользователь: {}", user);
+            log.trace("В общий список друзей добавлен пользователь: {}", user);
         }
+        loadFriendships(commonFriends, fields);
         log.info("В списке общих друзей {} пользователей", commonFriends.size());
         return commonFriends;
     }
-}
\ No newline at end of file
+}
@@ -1,24 +1,67 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserField;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface UserStorage {
 
-    List<User> get();
+    default List<User> get() {
+        return get(UserField.ALL);
+    }
+
+    // поля, не вошедшие в fields, не загружаются и остаются пустыми
+    List<User> get(Set<UserField> fields);
 
     User create(User user);
 
     User update(User user);
 
-    User getUserById(Integer userId);
+    default User getUserById(Integer userId) {
+        return getUserById(userId, UserField.ALL);
+    }
+
+    User getUserById(Integer userId, Set<UserField> fields);
+
+    // найденные пользователи по id, отсутствующие id в результат не попадают
+    Map<Integer, User> getUsersByIds(Collection<Integer> userIds, Set<UserField> fields);
+
+    boolean exists(Integer userId);
+
+    // версия пользователя для ETag: растёт при каждом его изменении, включая список друзей
+    long getVersion(Integer userId);
+
+    // версия всех пользователей: растёт при любом изменении пользователей и дружбы
+    long getVersion();
+
+    // true, если пользователя ещё не было в друзьях и он добавлен
+    boolean addFriend(Integer userId, Integer friendId);
+
+    // true, если пользователь был в друзьях и удалён
+    boolean removeFriend(Integer userId, Integer friendId);
+
+    default List<User> addToFriends(Integer userId, Integer friendId) {
+        addFriend(userId, friendId);
+        return getFriends(userId); // вернём список всех друзей (включая нового друга с friendId) пользователя с userId
+    }
+
+    default void deleteFromFriends(Integer userId, Integer friendId) {
+        removeFriend(userId, friendId);
+    }
 
-    List<User> addToFriends(Integer userId, Integer friendId);
+    default List<User> getFriends(Integer userId) {
+        return getFriends(userId, UserField.ALL);
+    }
 
-    void deleteFromFriends(Integer userId, Integer friendId);
+    List<User> getFriends(Integer userId, Set<UserField> fields);
 
-    List<User> getFriends(Integer userId);
+    default List<User> getCommonFriends(Integer userId, Integer friendId) {
+        return getCommonFriends(userId, friendId, UserField.ALL);
+    }
 
-    List<User> getCommonFriends(Integer userId, Integer friendId);
+    List<User> getCommonFriends(Integer userId, Integer friendId, Set<UserField> fields);
 }
@@ -39,4 +39,36 @@ CREATE TABLE IF NOT EXISTS genres (
 CREATE TABLE IF NOT EXISTS film_genres (
         film_id INTEGER REFERENCES films (id),
         genre_id INTEGER REFERENCES genres (id)
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS likes_film_user_idx ON likes (film_id, user_id);
+
+CREATE INDEX IF NOT EXISTS likes_user_film_idx ON likes (user_id, film_id);
+
+CREATE INDEX IF NOT EXISTS film_genres_film_idx ON film_genres (film_id);
+
+CREATE INDEX IF NOT EXISTS friendships_user_friend_idx ON friendships (user_id, friend_id);
+
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS likes_created_idx ON likes (created_at);
+
+CREATE TABLE IF NOT EXISTS feed_events (
+        id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        user_id INTEGER REFERENCES users (id),
+        event_type varchar(20) NOT NULL,
+        operation varchar(20) NOT NULL,
+        entity_id INTEGER NOT NULL,
+        created_at TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS entity_changes (
+        version BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        entity_type varchar(10) NOT NULL,
+        entity_id INTEGER NOT NULL,
+        changed_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS entity_changes_type_version_idx ON entity_changes (entity_type, version);
+
+CREATE INDEX IF NOT EXISTS entity_changes_type_entity_idx ON entity_changes (entity_type, entity_id, version);
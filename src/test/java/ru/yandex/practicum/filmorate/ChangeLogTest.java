@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.ChangePage;
+import ru.yandex.practicum.filmorate.model.EntityType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.change.InMemoryChangeStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeLogTest {
+
+    private final InMemoryChangeStorage changeStorage = new InMemoryChangeStorage();
+    private final ChangeLog changeLog = new ChangeLog(changeStorage, new InMemoryFilmStorage(),
+            new InMemoryUserStorage());
+    private int nextId = 1;
+
+    @Test
+    void returnsEachChangedEntityOnceInVersionOrder() {
+        Film first = film();
+        Film second = film();
+        Film third = film();
+        changeLog.onFilm(new FilmEvent(first, Operation.ADD));
+        changeLog.onFilm(new FilmEvent(second, Operation.ADD));
+        changeLog.onFilm(new FilmEvent(third, Operation.ADD));
+        ChangePage<Integer> all = changeLog.getChanges(EntityType.FILM, 0, 10);
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), all.getEntities());
+        assertFalse(all.isHasMore());
+
+        changeLog.onLike(new LikeEvent(first.getId(), 1, Operation.ADD, null));
+        ChangePage<Integer> changes = changeLog.getChanges(EntityType.FILM, all.getVersion(), 10);
+        assertEquals(List.of(first.getId()), changes.getEntities());
+        assertEquals(List.of(second.getId(), third.getId(), first.getId()),
+                changeLog.getChanges(EntityType.FILM, 0, 10).getEntities());
+
+        ChangePage<Integer> empty = changeLog.getChanges(EntityType.FILM, changes.getVersion(), 10);
+        assertEquals(List.of(), empty.getEntities());
+        assertEquals(changes.getVersion(), empty.getVersion());
+        // изменения пользователей в журнал фильмов не попадают
+        changeLog.onFriendship(new FriendshipEvent(1, 2, Operation.ADD));
+        assertEquals(List.of(), changeLog.getChanges(EntityType.FILM, changes.getVersion(), 10).getEntities());
+        assertEquals(List.of(1), changeLog.getChanges(EntityType.USER, changes.getVersion(), 10).getEntities());
+    }
+
+    @Test
+    void pagesCoverAllChangesAndCompactionKeepsThem() {
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Film film = film();
+            filmIds.add(film.getId());
+            changeLog.onFilm(new FilmEvent(film, Operation.ADD));
+        }
+        for (int i = 0; i < 25; i += 2) {
+            changeLog.onLike(new LikeEvent(filmIds.get(i), 1, Operation.ADD, null));
+        }
+        List<Integer> expected = readAll(10);
+        assertEquals(25, expected.size());
+
+        assertEquals(13, changeStorage.compact());
+        assertEquals(0, changeStorage.compact());
+        assertEquals(expected, readAll(10));
+        assertEquals(expected, readAll(3));
+    }
+
+    private List<Integer> readAll(int size) {
+        List<Integer> ids = new ArrayList<>();
+        long version = 0;
+        ChangePage<Integer> page;
+        do {
+            page = changeLog.getChanges(EntityType.FILM, version, size);
+            assertTrue(page.getEntities().size() <= size);
+            ids.addAll(page.getEntities());
+            version = page.getVersion();
+        } while (page.isHasMore());
+        return ids;
+    }
+
+    private Film film() {
+        return Film.builder()
+                .id(nextId++)
+                .name("Фильм")
+                .description("")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Сравнение полных ответов списочных эндпоинтов с ответами, суженными через ?fields=.
+// Не входит в обычный прогон тестов, запуск: mvn test -Dtest=FieldsBenchmark
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class FieldsBenchmark {
+
+    private static final int FILMS = 1000;
+    private static final int USERS = 300;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        Integer films = jdbcTemplate.queryForObject("select count(*) from films", Integer.class);
+        if (films != null && films >= FILMS) {
+            return;
+        }
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{"bench" + i + "@ya.ru", "bench" + i, "bench" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into users (email, login, name, birthday) values (?, ?, ?, '2000-01-01')", users);
+        // каждый пользователь дружит со всеми остальными
+        jdbcTemplate.update("insert into friendships (user_id, friend_id, status) " +
+                "select u.id, f.id, false from users u cross join users f where u.id <> f.id");
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            rows.add(new Object[]{"film" + i, "Описание фильма " + i});
+        }
+        jdbcTemplate.batchUpdate("insert into films (name, description, release_date, duration, rating_id) " +
+                "values (?, ?, '2000-01-01', 120, 1)", rows);
+        jdbcTemplate.update("insert into film_genres (film_id, genre_id) select f.id, g.id from films f cross join genres g");
+        jdbcTemplate.update("insert into likes (film_id, user_id) select f.id, u.id from films f cross join users u " +
+                "where mod(f.id + u.id, 3) = 0");
+    }
+
+    @Test
+    void measureListEndpoints() throws Exception {
+        Integer userId = jdbcTemplate.queryForObject("select min(id) from users", Integer.class);
+        report("GET /films", get("/films"), get("/films").param("fields", "id,name,mpa"));
+        report("GET /films/popular?count=100", get("/films/popular").param("count", "100"),
+                get("/films/popular").param("count", "100").param("fields", "id,name,mpa"));
+        report("GET /users/{id}/friends", get("/users/{id}/friends", userId),
+                get("/users/{id}/friends", userId).param("fields", "id,login,name"));
+    }
+
+    private void report(String name, MockHttpServletRequestBuilder full, MockHttpServletRequestBuilder sparse)
+            throws Exception {
+        long fullNanos = measure(full);
+        long sparseNanos = measure(sparse);
+        int fullBytes = mockMvc.perform(full).andReturn().getResponse().getContentAsByteArray().length;
+        int sparseBytes = mockMvc.perform(sparse).andReturn().getResponse().getContentAsByteArray().length;
+        System.out.printf("%s: все поля %d мкс / %d байт, fields %d мкс / %d байт%n",
+                name, fullNanos / 1000, fullBytes, sparseNanos / 1000, sparseBytes);
+    }
+
+    private long measure(MockHttpServletRequestBuilder request) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mockMvc.perform(request).andExpect(status().isOk());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mockMvc.perform(request).andExpect(status().isOk());
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -1,14 +1,35 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.FilmResponseCache;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ChangeLog;
+import ru.yandex.practicum.filmorate.service.FilmFilterIndex;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmStatistics;
+import ru.yandex.practicum.filmorate.service.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.service.FilmTextIndex;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.FriendPaths;
+import ru.yandex.practicum.filmorate.service.FriendSuggestions;
+import ru.yandex.practicum.filmorate.service.LikeGraph;
+import ru.yandex.practicum.filmorate.service.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.service.PopularFilmsSnapshot;
+import ru.yandex.practicum.filmorate.service.SimilarFilms;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserFeed;
+import ru.yandex.practicum.filmorate.service.UserInfluence;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.UserSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.change.InMemoryChangeStorage;
+import ru.yandex.practicum.filmorate.storage.feed.InMemoryFeedStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
@@ -65,7 +86,22 @@ class FilmControllerTest {
 
     @BeforeEach
     void setUp() {
-        controller = new FilmController(new FilmService(new InMemoryFilmStorage(), new UserService(new InMemoryUserStorage())));
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        FriendGraph friendGraph = new FriendGraph(userStorage);
+        LikeGraph likeGraph = new LikeGraph(filmStorage);
+        ChangeLog changeLog = new ChangeLog(new InMemoryChangeStorage(), filmStorage, userStorage);
+        UserService userService = new UserService(userStorage, event -> { }, new UserSuggestIndex(userStorage),
+                new FriendSuggestions(friendGraph), new FriendPaths(friendGraph),
+                new UserInfluence(friendGraph, 1),
+                new UserFeed(new InMemoryFeedStorage(), friendGraph, 1000), changeLog);
+        FilmService filmService = new FilmService(filmStorage, userService,
+                event -> { }, new PopularFilmsSnapshot(filmStorage, 0, 0), new TrendingFilms(filmStorage),
+                new PopularFilmsIndex(filmStorage), new FilmFilterIndex(filmStorage),
+                new FilmTextIndex(filmStorage), new FilmSuggestIndex(filmStorage),
+                new FilmRecommender(likeGraph, 1), new SimilarFilms(filmStorage, likeGraph),
+                new FilmStatistics(filmStorage), changeLog);
+        controller = new FilmController(filmService, new FilmResponseCache(filmService, new ObjectMapper(), 100));
         film = Film.builder()
                 .name("Супер боевик")
                 .description("Пятеро друзей ( комик-группа «Шарло»), приезжают в город Бризуль. " +
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.FilmFilterIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmFilterIndexTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmFilterIndex index = new FilmFilterIndex(filmStorage);
+
+    @BeforeEach
+    void setUp() {
+        add("comedy", 1, 1, LocalDate.of(2020, 1, 1), 90);
+        add("drama", 2, 2, LocalDate.of(2021, 6, 1), 150);
+        add("long comedy", 1, 3, LocalDate.of(2022, 3, 1), 180);
+        add("old drama", 2, 1, LocalDate.of(1950, 1, 1), 100);
+        index.onLike(new LikeEvent(3, 1, Operation.ADD, Instant.now()));
+        index.onLike(new LikeEvent(3, 2, Operation.ADD, Instant.now()));
+        index.onLike(new LikeEvent(2, 1, Operation.ADD, Instant.now()));
+    }
+
+    @Test
+    void combinesConditions() {
+        assertEquals(List.of(1, 3), find(FilmFilter.builder().genres(Set.of(1)).build()));
+        assertEquals(List.of(1, 2, 3, 4), find(FilmFilter.builder().genres(Set.of(1, 2)).build()));
+        assertEquals(List.of(3), find(FilmFilter.builder().genres(Set.of(1)).minDuration(120).build()));
+        assertEquals(List.of(2, 3), find(FilmFilter.builder()
+                .releasedFrom(LocalDate.of(2021, 1, 1))
+                .releasedTo(LocalDate.of(2022, 12, 31))
+                .build()));
+        assertEquals(List.of(1, 4), find(FilmFilter.builder().mpa(Set.of(1)).build()));
+        assertEquals(List.of(3), find(FilmFilter.builder().minLikes(2).build()));
+        assertEquals(List.of(2), find(FilmFilter.builder().minLikes(1).genres(Set.of(2)).build()));
+        assertEquals(List.of(), find(FilmFilter.builder().genres(Set.of(6)).build()));
+        assertEquals(List.of(1, 2, 3, 4), find(FilmFilter.builder().build()));
+    }
+
+    @Test
+    void updateMovesFilmBetweenIndexes() {
+        Film film = filmStorage.getFilmById(1);
+        film.setGenres(Set.of(Genre.builder().id(2).build()));
+        film.setDuration(200);
+        index.onFilm(new FilmEvent(filmStorage.update(film), Operation.UPDATE));
+
+        assertEquals(List.of(3), find(FilmFilter.builder().genres(Set.of(1)).build()));
+        assertEquals(List.of(1, 3), find(FilmFilter.builder().minDuration(170).build()));
+    }
+
+    private List<Integer> find(FilmFilter filter) {
+        return index.find(filter, 100);
+    }
+
+    private void add(String name, int genreId, int mpaId, LocalDate releaseDate, long duration) {
+        Film film = filmStorage.create(Film.builder()
+                .name(name)
+                .description(name)
+                .releaseDate(releaseDate)
+                .duration(duration)
+                .genres(Set.of(Genre.builder().id(genreId).build()))
+                .mpa(Rating.builder().id(mpaId).build())
+                .build());
+        index.onFilm(new FilmEvent(film, Operation.ADD));
+    }
+}
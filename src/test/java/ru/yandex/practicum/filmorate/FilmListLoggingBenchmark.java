@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.config.LogbookSampler;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Замер накладных расходов логирования на GET /films.
+// Не входит в обычный прогон тестов, запуск: mvn test -Dtest=FilmListLoggingBenchmark
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class FilmListLoggingBenchmark {
+
+    private static final int FILMS = 300;
+    private static final int USERS = 200;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private LogbookSampler sampler;
+    @Autowired
+    private LoggingSystem loggingSystem;
+
+    @BeforeEach
+    void setUp() {
+        Integer films = jdbcTemplate.queryForObject("select count(*) from films", Integer.class);
+        if (films != null && films >= FILMS) {
+            return;
+        }
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{"bench" + i + "@ya.ru", "bench" + i, "bench" + i});
+        }
+        jdbcTemplate.batchUpdate("insert into users (email, login, name, birthday) values (?, ?, ?, '2000-01-01')", users);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            rows.add(new Object[]{"film" + i, "Описание фильма " + i});
+        }
+        jdbcTemplate.batchUpdate("insert into films (name, description, release_date, duration, rating_id) " +
+                "values (?, ?, '2000-01-01', 120, 1)", rows);
+        jdbcTemplate.update("insert into likes (film_id, user_id) select f.id, u.id from films f cross join users u");
+    }
+
+    @Test
+    void measureGetFilms() throws Exception {
+        String storageLogger = FilmDbStorage.class.getName();
+
+        sampler.setSampleRate(1);
+        loggingSystem.setLogLevel(storageLogger, LogLevel.TRACE);
+        long full = measure();
+
+        sampler.setSampleRate(0.01);
+        loggingSystem.setLogLevel(storageLogger, LogLevel.INFO);
+        long sampled = measure();
+
+        sampler.setSampleRate(0);
+        long disabled = measure();
+
+        System.out.printf("GET /films (%d фильмов, %d лайков у каждого), мкс на запрос:%n", FILMS, USERS);
+        System.out.printf("  полное логирование тел и строк: %d%n", full / 1000);
+        System.out.printf("  выборка 1%%, построчный лог выключен: %d%n", sampled / 1000);
+        System.out.printf("  Logbook выключен: %d%n", disabled / 1000);
+    }
+
+    private long measure() throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            mockMvc.perform(get("/films")).andExpect(status().isOk());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mockMvc.perform(get("/films")).andExpect(status().isOk());
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
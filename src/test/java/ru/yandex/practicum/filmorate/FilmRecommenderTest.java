@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.LikeGraph;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmRecommenderTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final LikeGraph likeGraph = new LikeGraph(filmStorage);
+    private final FilmRecommender recommender = new FilmRecommender(likeGraph, 1);
+    private final TestEvents events = new TestEvents(likeGraph, recommender);
+    private int storedFilms;
+
+    @Test
+    void recommendsFilmsOfUsersWithSimilarLikes() {
+        like(1, 10, 11, 12);
+        like(2, 10, 11, 12, 13); // почти те же вкусы
+        like(3, 10, 14, 15, 16, 17, 18); // одно совпадение
+        like(4, 20);
+
+        assertEquals(List.of(13, 14, 15, 16, 17, 18), recommender.recommend(1, 10));
+        assertEquals(List.of(13), recommender.recommend(1, 1));
+        assertEquals(List.of(), recommender.recommend(4, 10));
+        assertEquals(List.of(), recommender.recommend(5, 10));
+    }
+
+    @Test
+    void cacheIsInvalidatedByOwnLikes() {
+        like(1, 10);
+        like(2, 10, 11);
+        assertEquals(List.of(11), recommender.recommend(1, 10));
+
+        like(1, 11);
+        assertEquals(List.of(), recommender.recommend(1, 10));
+    }
+
+    @Test
+    void reorderedLikeEventsKeepGraphInSyncWithStorage() {
+        like(1, 10);
+        like(2, 10, 11);
+        // лайк снят, но события о постановке и снятии доставлены в обратном порядке
+        filmStorage.deleteLike(11, 2);
+        events.unlike(11, 2);
+        events.like(11, 2);
+
+        assertEquals(List.of(), recommender.recommend(1, 10));
+        assertEquals(0, likeGraph.read(() -> likeGraph.likers(11).size()));
+    }
+
+    @Test
+    void parallelCountingMatchesSequential() {
+        Random random = new Random(7);
+        for (int userId = 1; userId <= 2000; userId++) {
+            for (int i = 0; i < 40; i++) {
+                like(userId, 1 + random.nextInt(300));
+            }
+        }
+        FilmRecommender sequential = new FilmRecommender(likeGraph, 1);
+        FilmRecommender parallel = new FilmRecommender(likeGraph, 4);
+        for (int userId = 1; userId <= 20; userId++) {
+            assertEquals(sequential.recommend(userId, 50), parallel.recommend(userId, 50));
+        }
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            store(filmId);
+            filmStorage.addLike(filmId, userId);
+            events.like(filmId, userId);
+        }
+    }
+
+    // граф лайков сверяет событие с хранилищем, поэтому лайк сначала записывается туда;
+    // фильмы с меньшими id создаются по мере надобности
+    private void store(int filmId) {
+        while (storedFilms < filmId) {
+            filmStorage.create(Film.builder()
+                    .name("Фильм")
+                    .description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .mpa(Rating.builder().id(1).build())
+                    .build());
+            storedFilms++;
+        }
+    }
+}
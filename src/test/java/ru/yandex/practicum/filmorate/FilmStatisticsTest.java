@@ -0,0 +1,205 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.FilmStats;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.FilmStatistics;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmStatisticsTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmStatistics statistics = new FilmStatistics(filmStorage);
+    private final TestEvents events = new TestEvents(statistics);
+
+    @Test
+    void updatesAggregatesOnFilmAndLikeEvents() {
+        Film first = create(2000, 1, 100, 1, 2);
+        Film second = create(2000, 1, 200, 2);
+        Film third = create(2010, 2, 90);
+        like(first.getId(), 1);
+        like(first.getId(), 2);
+        like(third.getId(), 1);
+
+        FilmStats stats = statistics.getStats();
+        assertEquals(3, stats.getFilms());
+        assertEquals(Map.of(1, 1L, 2, 2L), stats.getFilmsByGenre());
+        assertEquals(Map.of(1, 150.0, 2, 90.0), stats.getAverageDurationByMpa());
+        assertEquals(Map.of(2000, 2L, 2010, 1L), stats.getLikesByYear());
+
+        // при изменении фильма его лайки переносятся на новый год выхода
+        Film changed = film(2010, 2, 120, 3);
+        changed.setId(first.getId());
+        update(changed);
+        unlike(third.getId(), 1);
+
+        stats = statistics.getStats();
+        assertEquals(3, stats.getFilms());
+        assertEquals(Map.of(2, 1L, 3, 1L), stats.getFilmsByGenre());
+        assertEquals(Map.of(1, 200.0, 2, 105.0), stats.getAverageDurationByMpa());
+        assertEquals(Map.of(2010, 2L), stats.getLikesByYear());
+    }
+
+    @Test
+    void verifyRepairsDrift() {
+        create(1999, 1, 100, 1);
+        // фильм и лайк, о которых сводка не узнала
+        Film missed = filmStorage.create(film(2005, 3, 60, 4));
+        filmStorage.addLike(missed.getId(), 7);
+
+        assertEquals(1, statistics.getStats().getFilms());
+        statistics.verify();
+
+        FilmStats stats = statistics.getStats();
+        assertEquals(2, stats.getFilms());
+        assertEquals(Map.of(1, 1L, 4, 1L), stats.getFilmsByGenre());
+        assertEquals(Map.of(1, 100.0, 3, 60.0), stats.getAverageDurationByMpa());
+        assertEquals(Map.of(2005, 1L), stats.getLikesByYear());
+    }
+
+    @Test
+    void likeDuringVerifyIsNotLost() {
+        ReadHookStorage storage = new ReadHookStorage();
+        FilmStatistics slowStatistics = new FilmStatistics(storage);
+        TestEvents slowEvents = new TestEvents(slowStatistics);
+        Film film = storage.create(film(2001, 1, 90));
+        slowEvents.publish(new FilmEvent(film, Operation.ADD));
+        // лайк попадает в базу и в сводку уже после того, как пересчёт прочитал каталог
+        storage.afterRead = () -> {
+            storage.addLike(film.getId(), 1);
+            slowEvents.like(film.getId(), 1);
+        };
+
+        slowStatistics.verify();
+
+        assertEquals(Map.of(2001, 1L), slowStatistics.getStats().getLikesByYear());
+        storage.afterRead = () -> { };
+        slowStatistics.verify();
+        assertEquals(Map.of(2001, 1L), slowStatistics.getStats().getLikesByYear());
+    }
+
+    @Test
+    void likeReadByVerifyIsCountedOnce() {
+        ReadHookStorage storage = new ReadHookStorage();
+        FilmStatistics slowStatistics = new FilmStatistics(storage);
+        TestEvents slowEvents = new TestEvents(slowStatistics);
+        Film film = storage.create(film(2001, 1, 90));
+        slowEvents.publish(new FilmEvent(film, Operation.ADD));
+        // лайк попадает в базу после начала пересчёта, но до чтения каталога, и пересчёт его уже видит
+        storage.beforeRead = () -> {
+            storage.addLike(film.getId(), 1);
+            slowEvents.like(film.getId(), 1);
+        };
+
+        slowStatistics.verify();
+
+        assertEquals(Map.of(2001, 1L), slowStatistics.getStats().getLikesByYear());
+        // повторно доставленное событие о том же лайке счётчик не сдвигает
+        slowEvents.like(film.getId(), 1);
+        assertEquals(Map.of(2001, 1L), slowStatistics.getStats().getLikesByYear());
+    }
+
+    @Test
+    void incrementalAggregatesMatchFullRecomputation() {
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            create(1950 + random.nextInt(70), 1 + random.nextInt(5), 60 + random.nextInt(120),
+                    IntStream.range(0, random.nextInt(4)).map(g -> 1 + random.nextInt(6)).toArray());
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int filmId = 1 + random.nextInt(2000);
+            int userId = 1 + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                unlike(filmId, userId);
+            } else {
+                like(filmId, userId);
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            Film changed = film(1950 + random.nextInt(70), 1 + random.nextInt(5), 60 + random.nextInt(120),
+                    1 + random.nextInt(6));
+            changed.setId(1 + random.nextInt(2000));
+            update(changed);
+        }
+
+        FilmStats incremental = statistics.getStats();
+        FilmStatistics recomputed = new FilmStatistics(filmStorage);
+        recomputed.verify();
+        assertEquals(recomputed.getStats(), incremental);
+    }
+
+    private Film create(int year, int mpaId, long duration, int... genreIds) {
+        Film film = filmStorage.create(film(year, mpaId, duration, genreIds));
+        events.publish(new FilmEvent(film, Operation.ADD));
+        return film;
+    }
+
+    private void update(Film film) {
+        events.publish(new FilmEvent(filmStorage.update(film), Operation.UPDATE));
+    }
+
+    private void like(int filmId, int userId) {
+        if (filmStorage.addLike(filmId, userId)) {
+            events.like(filmId, userId);
+        }
+    }
+
+    private void unlike(int filmId, int userId) {
+        if (filmStorage.deleteLike(filmId, userId)) {
+            events.unlike(filmId, userId);
+        }
+    }
+
+    private static Film film(int year, int mpaId, long duration, int... genreIds) {
+        Set<Genre> genres = IntStream.of(genreIds)
+                .mapToObj(id -> Genre.builder().id(id).build())
+                .collect(Collectors.toSet());
+        return Film.builder()
+                .name("Фильм " + year)
+                .description("")
+                .releaseDate(LocalDate.of(year, 1, 1))
+                .duration(duration)
+                .mpa(Rating.builder().id(mpaId).build())
+                .genres(genres)
+                .build();
+    }
+
+    // Хранилище, выполняющее заданные действия до и после чтения каталога
+    private static class ReadHookStorage extends InMemoryFilmStorage {
+        private Runnable beforeRead = () -> { };
+        private Runnable afterRead = () -> { };
+
+        @Override
+        public List<Film> get(Set<FilmField> fields) {
+            beforeRead.run();
+            // копии, как при чтении из базы: последующие лайки не меняют прочитанное
+            List<Film> films = super.get(fields).stream()
+                    .map(film -> Film.builder()
+                            .id(film.getId())
+                            .releaseDate(film.getReleaseDate())
+                            .duration(film.getDuration())
+                            .likeCount(film.getLikeCount())
+                            .genres(film.getGenres())
+                            .mpa(film.getMpa())
+                            .build())
+                    .collect(Collectors.toList());
+            afterRead.run();
+            return films;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmTextIndexTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final FilmTextIndex index = new FilmTextIndex(filmStorage);
+
+    @Test
+    void normalizesRussianAndEnglishWords() {
+        assertEquals(2, FilmTextIndex.tokenize("Ёжик в тумане").size());
+        assertEquals(FilmTextIndex.tokenize("ежики"), FilmTextIndex.tokenize("Ёжик"));
+        assertEquals(FilmTextIndex.tokenize("туманы"), FilmTextIndex.tokenize("туманом"));
+        assertEquals(FilmTextIndex.tokenize("Running"), FilmTextIndex.tokenize("runs"));
+    }
+
+    @Test
+    void ranksNameMatchesAndLikedFilmsHigher() {
+        int hedgehog = add("Ёжик в тумане", "Мультфильм про ёжика");
+        int fog = add("Туман", "Туман над городом");
+        int other = add("Другое кино", "Ёжики и туманы на фоне");
+
+        assertEquals(List.of(hedgehog, other), index.search("ёжики"));
+        assertEquals(List.of(fog, hedgehog, other), index.search("туман"));
+
+        index.onLike(new LikeEvent(other, 1, Operation.ADD, Instant.now()));
+        index.onLike(new LikeEvent(other, 2, Operation.ADD, Instant.now()));
+        index.onLike(new LikeEvent(other, 3, Operation.ADD, Instant.now()));
+        index.onLike(new LikeEvent(other, 4, Operation.ADD, Instant.now()));
+        assertEquals(List.of(hedgehog, other, fog), index.search("туманы ежики"));
+        assertEquals(List.of(), index.search("космос"));
+    }
+
+    @Test
+    void updateReplacesTerms() {
+        int first = add("Space odyssey", "Monolith");
+        int second = add("Alien", "Space horror");
+        Film film = filmStorage.getFilmById(first);
+        film.setName("Solaris");
+        film.setDescription("Ocean");
+        index.onFilm(new FilmEvent(filmStorage.update(film), Operation.UPDATE));
+
+        assertEquals(List.of(second), index.search("space"));
+        assertEquals(List.of(first), index.search("oceans"));
+        int third = add("Space", "");
+        assertEquals(List.of(third, second), index.search("space"));
+    }
+
+    private int add(String name, String description) {
+        Film film = filmStorage.create(Film.builder()
+                .name(name)
+                .description(description)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(90)
+                .mpa(Rating.builder().id(1).build())
+                .build());
+        index.onFilm(new FilmEvent(film, Operation.ADD));
+        return film.getId();
+    }
+}
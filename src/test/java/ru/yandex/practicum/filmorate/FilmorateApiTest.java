@@ -0,0 +1,625 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmField;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.PopularFilms;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmStatistics;
+import ru.yandex.practicum.filmorate.service.PopularFilmsSnapshot;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+class FilmorateApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private UserDbStorage userStorage;
+    @Autowired
+    private PopularFilmsSnapshot popularFilmsSnapshot;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmStatistics filmStatistics;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testGetFilmWithFields() throws Exception {
+        Film film = filmStorage.create(film("fields1"));
+
+        mockMvc.perform(get("/films/{id}", film.getId()).param("fields", "name,mpa"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(film.getId()))
+                .andExpect(jsonPath("$.name").value("fields1"))
+                .andExpect(jsonPath("$.mpa.id").value(1))
+                .andExpect(jsonPath("$.description").doesNotExist())
+                .andExpect(jsonPath("$.genres").doesNotExist())
+                .andExpect(jsonPath("$.likeCount").doesNotExist());
+
+        mockMvc.perform(get("/films/{id}", film.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description").value("Description of fields1"))
+                .andExpect(jsonPath("$.genres", hasSize(1)))
+                .andExpect(jsonPath("$.likeCount").value(0));
+    }
+
+    @Test
+    void testGetFriendsWithFields() throws Exception {
+        User user = userStorage.create(user("fieldsUser1"));
+        User friend = userStorage.create(user("fieldsUser2"));
+        userStorage.addToFriends(user.getId(), friend.getId());
+
+        mockMvc.perform(get("/users/{id}/friends", user.getId()).param("fields", "login"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].login").value("fieldsUser2"))
+                .andExpect(jsonPath("$[0].friends").doesNotExist())
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @Test
+    void testGetFilmsWithUnknownField() throws Exception {
+        mockMvc.perform(get("/films").param("fields", "id,budget"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetFilmsByIdsKeepsOrderAndMarksMissing() throws Exception {
+        Film first = filmStorage.create(film("batch1"));
+        Film second = filmStorage.create(film("batch2"));
+        int missing = second.getId() + 1000;
+
+        mockMvc.perform(get("/films").param("ids", second.getId() + "," + missing + "," + first.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[0].name").value("batch2"))
+                .andExpect(jsonPath("$.items[1]").value(nullValue()))
+                .andExpect(jsonPath("$.items[2].name").value("batch1"))
+                .andExpect(jsonPath("$.items[2].genres", hasSize(1)))
+                .andExpect(jsonPath("$.notFound[0]").value(missing));
+    }
+
+    @Test
+    void testGetUsersByIdsWithFields() throws Exception {
+        User user = userStorage.create(user("batchUser1"));
+
+        mockMvc.perform(get("/users").param("ids", String.valueOf(user.getId())).param("fields", "login"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].login").value("batchUser1"))
+                .andExpect(jsonPath("$.items[0].email").doesNotExist())
+                .andExpect(jsonPath("$.notFound", hasSize(0)));
+    }
+
+    @Test
+    void testPopularFilmsServedFromSnapshotWithAge() throws Exception {
+        Film film = filmStorage.create(film("snapshot1"));
+        popularFilmsSnapshot.refresh();
+
+        mockMvc.perform(get("/films/popular").param("count", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Age"))
+                .andExpect(header().exists("X-Snapshot-Age-Ms"));
+        mockMvc.perform(get("/films/popular").param("count", "100"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Age", "0"))
+                .andExpect(jsonPath("$[?(@.id == " + film.getId() + ")]").exists());
+    }
+
+    @Test
+    void testPopularFilmsSnapshotKeepsProjection() {
+        filmStorage.create(film("snapshotProjection"));
+        popularFilmsSnapshot.refresh();
+        Set<FilmField> fields = EnumSet.of(FilmField.ID, FilmField.NAME);
+
+        // снимок может пересчитаться в фоне между вызовами, тогда сравнение повторяется
+        for (int attempt = 0; ; attempt++) {
+            PopularFilms full = popularFilmsSnapshot.get(10);
+            PopularFilms projected = filmService.getPopularFilmsWithAge(10, fields);
+            if (!full.getBuiltAt().equals(projected.getBuiltAt()) && attempt < 3) {
+                continue;
+            }
+            assertEquals(full.getBuiltAt(), projected.getBuiltAt());
+            assertEquals(full.getFilms().stream().map(Film::getId).collect(Collectors.toList()),
+                    projected.getFilms().stream().map(Film::getId).collect(Collectors.toList()));
+            for (Film film : projected.getFilms()) {
+                assertNotNull(film.getName());
+                assertNull(film.getDescription());
+                assertNull(film.getGenres());
+                assertNull(film.getMpa());
+            }
+            break;
+        }
+    }
+
+    @Test
+    void testPopularFilmsByGenreAndYear() throws Exception {
+        Film comedy = film("comedy2022");
+        comedy.setGenres(Set.of(Genre.builder().id(1).build()));
+        comedy.setReleaseDate(LocalDate.of(2022, 5, 1));
+        comedy = filmService.create(comedy);
+        Film drama = film("drama2022");
+        drama.setGenres(Set.of(Genre.builder().id(2).build()));
+        drama.setReleaseDate(LocalDate.of(2022, 6, 1));
+        drama = filmService.create(drama);
+        Film oldComedy = film("comedy1999");
+        oldComedy.setReleaseDate(LocalDate.of(1999, 1, 1));
+        oldComedy = filmService.create(oldComedy);
+        User user = userStorage.create(user("partitionUser1"));
+        filmService.addLike(oldComedy.getId(), user.getId());
+
+        mockMvc.perform(get("/films/popular").param("year", "2022"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/films/popular").param("genreId", "1").param("year", "2022"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name").value("comedy2022"));
+        mockMvc.perform(get("/films/popular").param("genreId", "1").param("count", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("comedy1999"))
+                .andExpect(jsonPath("$[?(@.name == 'drama2022')]").doesNotExist());
+    }
+
+    @Test
+    void testSearchFilmsByFilters() throws Exception {
+        Film film = film("search1");
+        film.setDuration(777);
+        film = filmService.create(film);
+
+        mockMvc.perform(get("/films/search").param("minDuration", "700").param("genre", "1")
+                        .param("releasedFrom", "2000-01-01").param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(film.getId()))
+                .andExpect(jsonPath("$[0].duration").doesNotExist());
+        mockMvc.perform(get("/films/search").param("minDuration", "700").param("releasedTo", "2000-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testSearchFilmsByText() throws Exception {
+        Film film = film("Сталкер");
+        film.setDescription("Зона исполняет желания");
+        film = filmService.create(film);
+
+        mockMvc.perform(get("/films/search").param("q", "зоны"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(film.getId()));
+        mockMvc.perform(get("/films/search").param("q", "сталкер").param("minDuration", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void testSuggestFilmsAndUsers() throws Exception {
+        Film film = filmService.create(film("Подсказка"));
+        User user = userService.create(user("suggestUser"));
+
+        mockMvc.perform(get("/films/suggest").param("prefix", "подск"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(film.getId()))
+                .andExpect(jsonPath("$[0].text").value("Подсказка"));
+        mockMvc.perform(get("/users/suggest").param("prefix", "SUGGEST"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(user.getId()));
+        mockMvc.perform(get("/users/suggest").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testRecommendations() throws Exception {
+        // жанр 5, чтобы лайки не влияли на проверку популярного в жанре 1
+        Film seen = film("recommendSeen");
+        seen.setGenres(Set.of(Genre.builder().id(5).build()));
+        seen = filmService.create(seen);
+        Film unseen = film("recommendUnseen");
+        unseen.setGenres(Set.of(Genre.builder().id(5).build()));
+        unseen = filmService.create(unseen);
+        User user = userStorage.create(user("recommendUser1"));
+        User similar = userStorage.create(user("recommendUser2"));
+        filmService.addLike(seen.getId(), user.getId());
+        filmService.addLike(seen.getId(), similar.getId());
+        filmService.addLike(unseen.getId(), similar.getId());
+
+        mockMvc.perform(get("/users/{id}/recommendations", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(unseen.getId()));
+        mockMvc.perform(get("/users/{id}/recommendations", 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testSimilarFilms() throws Exception {
+        Film first = film("similarFirst");
+        first.setGenres(Set.of(Genre.builder().id(5).build()));
+        first = filmService.create(first);
+        Film second = film("similarSecond");
+        second.setGenres(Set.of(Genre.builder().id(5).build()));
+        second = filmService.create(second);
+        User user = userStorage.create(user("similarUser"));
+        filmService.addLike(first.getId(), user.getId());
+        filmService.addLike(second.getId(), user.getId());
+
+        mockMvc.perform(get("/films/{id}/similar", first.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(second.getId()));
+        mockMvc.perform(get("/films/{id}/similar", 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testFilmStats() throws Exception {
+        Film film = film("statsFilm");
+        film.setReleaseDate(LocalDate.of(1937, 5, 1));
+        film.setGenres(Set.of(Genre.builder().id(5).build()));
+        film = filmService.create(film);
+        User user = userStorage.create(user("statsUser"));
+        filmService.addLike(film.getId(), user.getId());
+
+        mockMvc.perform(get("/stats/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesByYear.1937").value(1))
+                .andExpect(jsonPath("$.averageDurationByMpa.1").exists());
+
+        // сверка с базой учитывает и фильмы, созданные в тестах напрямую через хранилище
+        filmStatistics.verify();
+        mockMvc.perform(get("/stats/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films").value(filmService.get().size()))
+                .andExpect(jsonPath("$.likesByYear.1937").value(1));
+    }
+
+    @Test
+    void testRequestStats() throws Exception {
+        Film film = filmService.create(film("requestStatsFilm"));
+        User user = userStorage.create(user("requestStatsUser"));
+        mockMvc.perform(get("/films/" + film.getId()).param("fields", "id,name")).andExpect(status().isOk());
+        mockMvc.perform(get("/users/" + user.getId() + "/friends")).andExpect(status().isOk());
+
+        JsonNode films = objectMapper.readTree(mockMvc.perform(get("/stats/films/requests"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.getPopularFilms").exists())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+        List<String> filmKeys = new ArrayList<>();
+        films.get("getFilmById").fieldNames().forEachRemaining(filmKeys::add);
+        assertTrue(filmKeys.stream().anyMatch(key -> key.startsWith("[" + film.getId() + ", ")));
+
+        JsonNode users = objectMapper.readTree(mockMvc.perform(get("/stats/users/requests"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+        List<String> userKeys = new ArrayList<>();
+        users.get("getFriends").fieldNames().forEachRemaining(userKeys::add);
+        assertTrue(userKeys.stream().anyMatch(key -> key.startsWith("[" + user.getId() + ", ")));
+    }
+
+    @Test
+    void testChanges() throws Exception {
+        long version = filmService.getChanges(0L, 500, FilmField.ALL).getVersion();
+        Film first = filmService.create(film("changesFirst"));
+        first.setGenres(Set.of(Genre.builder().id(5).build()));
+        filmService.update(first);
+        Film second = filmService.create(film("changesSecond"));
+
+        mockMvc.perform(get("/films/changes").param("since", String.valueOf(version)).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entities", hasSize(1)))
+                .andExpect(jsonPath("$.entities[0].id").value(first.getId()))
+                .andExpect(jsonPath("$.hasMore").value(true));
+        mockMvc.perform(get("/films/changes").param("since", String.valueOf(version)).param("fields", "name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entities", hasSize(2)))
+                .andExpect(jsonPath("$.entities[1].id").value(second.getId()))
+                .andExpect(jsonPath("$.entities[1].name").value("changesSecond"))
+                .andExpect(jsonPath("$.entities[1].description").doesNotExist())
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        User user = userService.create(user("changesUser"));
+        filmService.addLike(first.getId(), user.getId());
+        version = filmService.getChanges(version, 500, FilmField.ALL).getVersion();
+        mockMvc.perform(get("/users/changes").param("since", String.valueOf(version - 2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entities", hasSize(1)))
+                .andExpect(jsonPath("$.entities[0].login").value("changesUser"));
+        mockMvc.perform(get("/films/changes").param("since", String.valueOf(version)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entities", hasSize(0)))
+                .andExpect(jsonPath("$.version").value(version));
+        mockMvc.perform(get("/films/changes").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        // у обеих синхронизаций один предел страницы
+        mockMvc.perform(get("/films/changes").param("size", "501"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/changes").param("size", "501"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/changes").param("size", "500"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testConditionalGet() throws Exception {
+        Film film = film("etagFilm");
+        film.setGenres(Set.of(Genre.builder().id(5).build()));
+        film = filmService.create(film);
+        String eTag = mockMvc.perform(get("/films/{id}", film.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        mockMvc.perform(get("/films/{id}", film.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        User user = userService.create(user("etagUser"));
+        filmService.addLike(film.getId(), user.getId());
+        mockMvc.perform(get("/films/{id}", film.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.likeCount").value(1));
+
+        // снимок популярных может пересчитаться в фоне между запросами и сменить тег, тогда повторяем
+        int popularStatus = 0;
+        for (int attempt = 0; attempt < 3 && popularStatus != 304; attempt++) {
+            String popularETag = mockMvc.perform(get("/films/popular"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            popularStatus = mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularETag))
+                    .andReturn().getResponse().getStatus();
+        }
+        assertEquals(304, popularStatus);
+
+        String genresETag = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, genresETag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"));
+        mockMvc.perform(get("/mpa/{id}", 1).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+    }
+
+    @Test
+    void testRenderedFilmCache() throws Exception {
+        Film film = film("renderedFilm");
+        film.setGenres(Set.of(Genre.builder().id(5).build()));
+        film = filmService.create(film);
+        String first = mockMvc.perform(get("/films/{id}", film.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(objectMapper.writeValueAsString(filmService.getFilmById(film.getId())), first);
+        assertEquals(first, mockMvc.perform(get("/films/{id}", film.getId()))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+
+        film.setName("renderedFilmUpdated");
+        filmService.update(film);
+        User user = userService.create(user("renderedUser"));
+        filmService.addLike(film.getId(), user.getId());
+        mockMvc.perform(get("/films/{id}", film.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("renderedFilmUpdated"))
+                .andExpect(jsonPath("$.likeCount").value(1));
+
+        popularFilmsSnapshot.refresh();
+        String popular = mockMvc.perform(get("/films/popular").param("count", "5"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.AGE))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertEquals(objectMapper.writeValueAsString(filmService.getPopularFilms(5)), popular);
+    }
+
+    @Test
+    void testCborNegotiation() throws Exception {
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        Film film = film("cborFilm");
+        film.setGenres(Set.of(Genre.builder().id(5).build()));
+        film = filmService.create(film);
+        popularFilmsSnapshot.refresh();
+
+        MockHttpServletResponse json = mockMvc.perform(get("/films/{id}", film.getId()).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse();
+        MockHttpServletResponse cbor = mockMvc.perform(get("/films/{id}", film.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse();
+        assertEquals(objectMapper.readTree(json.getContentAsByteArray()),
+                cborMapper.readTree(cbor.getContentAsByteArray()));
+        assertNotEquals(json.getHeader(HttpHeaders.ETAG), cbor.getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/films/{id}", film.getId()).accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, json.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", film.getId()).accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cbor.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+
+        byte[] fields = mockMvc.perform(get("/films/{id}", film.getId()).param("fields", "name")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("cborFilm", cborMapper.readTree(fields).get("name").asText());
+        assertNull(cborMapper.readTree(fields).get("description"));
+
+        for (String path : List.of("/films/popular", "/users", "/genres", "/mpa")) {
+            byte[] jsonBody = mockMvc.perform(get(path).accept(MediaType.APPLICATION_JSON))
+                    .andReturn().getResponse().getContentAsByteArray();
+            byte[] cborBody = mockMvc.perform(get(path).accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertEquals(objectMapper.readTree(jsonBody), cborMapper.readTree(cborBody), path);
+        }
+    }
+
+    @Test
+    void testFriendSuggestions() throws Exception {
+        User user = userService.create(user("suggestionsUser"));
+        User friend = userService.create(user("suggestionsFriend"));
+        User friendOfFriend = userService.create(user("suggestionsFriendOfFriend"));
+        userService.addToFriends(user.getId(), friend.getId());
+        userService.addToFriends(friend.getId(), friendOfFriend.getId());
+        userService.addToFriends(friend.getId(), user.getId());
+
+        mockMvc.perform(get("/users/{id}/friends/suggestions", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(friendOfFriend.getId()));
+        mockMvc.perform(get("/users/{id}/friends/suggestions", 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testPath() throws Exception {
+        User first = userService.create(user("pathFirst"));
+        User middle = userService.create(user("pathMiddle"));
+        User last = userService.create(user("pathLast"));
+        userService.addToFriends(first.getId(), middle.getId());
+        userService.addToFriends(last.getId(), middle.getId());
+
+        mockMvc.perform(get("/users/{id}/path/{otherId}", first.getId(), last.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distance").value(2))
+                .andExpect(jsonPath("$.userIds", hasSize(3)))
+                .andExpect(jsonPath("$.userIds[1]").value(middle.getId()));
+        mockMvc.perform(get("/users/{id}/path/{otherId}", first.getId(), last.getId()).param("maxDepth", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.distance").doesNotExist())
+                .andExpect(jsonPath("$.userIds", hasSize(0)));
+        mockMvc.perform(get("/users/{id}/path/{otherId}", first.getId(), last.getId()).param("maxDepth", "7"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/{id}/path/{otherId}", first.getId(), 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testTopUsers() throws Exception {
+        mockMvc.perform(get("/users/top").param("count", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(lessThanOrEqualTo(3)));
+        mockMvc.perform(get("/users/top").param("count", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testFeed() throws Exception {
+        User reader = userService.create(user("feedReader"));
+        User author = userService.create(user("feedAuthor"));
+        User other = userService.create(user("feedOther"));
+        userService.addToFriends(reader.getId(), author.getId());
+        userService.addToFriends(author.getId(), other.getId());
+        userService.deleteFromFriends(author.getId(), other.getId());
+
+        mockMvc.perform(get("/users/{id}/feed", reader.getId()).param("count", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entries", hasSize(1)))
+                .andExpect(jsonPath("$.entries[0].type").value("FRIEND"))
+                .andExpect(jsonPath("$.entries[0].operation").value("REMOVE"))
+                .andExpect(jsonPath("$.entries[0].entityId").value(other.getId()))
+                .andExpect(jsonPath("$.nextCursor").isNumber());
+        mockMvc.perform(get("/users/{id}/feed", 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testLikedFilms() throws Exception {
+        // жанр 5, чтобы лайки не влияли на проверку популярного в жанре 1
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film film = film("likedFilm" + i);
+            film.setGenres(Set.of(Genre.builder().id(5).build()));
+            filmIds.add(filmService.create(film).getId());
+        }
+        User user = userStorage.create(user("likedFilmsUser"));
+        filmIds.forEach(filmId -> filmService.addLike(filmId, user.getId()));
+        filmService.deleteLike(filmIds.get(1), user.getId());
+
+        mockMvc.perform(get("/users/{id}/likes", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0]").value(filmIds.get(0)))
+                .andExpect(jsonPath("$[1]").value(filmIds.get(2)));
+        mockMvc.perform(get("/users/{id}/likes", user.getId())
+                        .param("after", filmIds.get(0).toString())
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0]").value(filmIds.get(2)));
+        mockMvc.perform(get("/users/{id}/likes", 100_000))
+                .andExpect(status().isNotFound());
+    }
+
+    static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Description of " + name)
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .duration(90)
+                .mpa(Rating.builder().id(1).build())
+                .genres(Set.of(Genre.builder().id(1).build()))
+                .build();
+    }
+
+    static User user(String login) {
+        return User.builder()
+                .name(login)
+                .email(login + "@ya.ru")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -19,7 +20,6 @@ import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -35,6 +35,7 @@ class FilmorateApplicationTest {
     private final FilmDbStorage filmStorage;
     private final GenreDbStorage genreStorage;
     private final RatingDbStorage ratingStorage;
+    private final TransactionTemplate transactionTemplate;
 
     @Test
     void testAddUser1() {
@@ -68,6 +69,35 @@ class FilmorateApplicationTest {
                 );
     }
 
+    @Test
+    void testUserExists() {
+        User newUser = User.builder()
+                .name("exists")
+                .email("exists@ya.ru")
+                .login("loginExists")
+                .birthday(LocalDate.of(1995, 5, 5))
+                .build();
+        User created = userStorage.create(newUser);
+        assertTrue(userStorage.exists(created.getId()));
+        assertFalse(userStorage.exists(created.getId() + 1000));
+        assertFalse(userStorage.exists(null));
+    }
+
+    @Test
+    void testRolledBackUserDoesNotExist() {
+        User newUser = User.builder()
+                .name("rolledBack")
+                .email("rolledBack@ya.ru")
+                .login("loginRolledBack")
+                .birthday(LocalDate.of(1995, 5, 5))
+                .build();
+        User created = transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return userStorage.create(newUser);
+        });
+        assertFalse(userStorage.exists(created.getId()));
+    }
+
     @Test
     void testTryAddUserWithWrongEmail() {
         User newUser = User.builder()
@@ -424,7 +454,8 @@ class FilmorateApplicationTest {
         filmStorage.addLike(filmOptional.get().getId(), userOptional.get().getId());
 
         Film filmWithLike = filmStorage.getFilmById(filmOptional.get().getId());
-        Set<Integer> likesByUsers = filmWithLike.getLikesByUsers();
+        assertEquals(1, filmWithLike.getLikeCount());
+        List<Integer> likesByUsers = filmStorage.getLikes(filmOptional.get().getId(), 0, 100);
         assertNotNull(likesByUsers);
         assertEquals(1, likesByUsers.size());
         assertTrue(likesByUsers.contains(userOptional.get().getId()));
@@ -454,7 +485,8 @@ class FilmorateApplicationTest {
         filmStorage.addLike(filmOptional.get().getId(), userOptional.get().getId());
 
         Film filmWithLike = filmStorage.getFilmById(filmOptional.get().getId());
-        Set<Integer> likesByUsers = filmWithLike.getLikesByUsers();
+        assertEquals(1, filmWithLike.getLikeCount());
+        List<Integer> likesByUsers = filmStorage.getLikes(filmOptional.get().getId(), 0, 100);
         assertNotNull(likesByUsers);
         assertEquals(1, likesByUsers.size());
         assertTrue(likesByUsers.contains(userOptional.get().getId()));
@@ -462,7 +494,8 @@ class FilmorateApplicationTest {
         filmStorage.deleteLike(filmOptional.get().getId(), userOptional.get().getId());
 
         filmWithLike = filmStorage.getFilmById(filmOptional.get().getId());
-        likesByUsers = filmWithLike.getLikesByUsers();
+        assertEquals(0, filmWithLike.getLikeCount());
+        likesByUsers = filmStorage.getLikes(filmOptional.get().getId(), 0, 100);
         assertNotNull(likesByUsers);
         assertEquals(0, likesByUsers.size());
         assertFalse(likesByUsers.contains(userOptional.get().getId()));
@@ -512,7 +545,8 @@ class FilmorateApplicationTest {
         filmStorage.addLike(film1Optional.get().getId(), user2Optional.get().getId());
 
         Film film1WithLike = filmStorage.getFilmById(film1Optional.get().getId());
-        Set<Integer> likesByUsersFilm1 = film1WithLike.getLikesByUsers();
+        assertEquals(2, film1WithLike.getLikeCount());
+        List<Integer> likesByUsersFilm1 = filmStorage.getLikes(film1Optional.get().getId(), 0, 100);
         assertNotNull(likesByUsersFilm1);
         assertEquals(2, likesByUsersFilm1.size());
         assertTrue(likesByUsersFilm1.contains(user1Optional.get().getId()));
@@ -521,7 +555,8 @@ class FilmorateApplicationTest {
         filmStorage.addLike(film2Optional.get().getId(), user1Optional.get().getId());
 
         Film film2WithLike = filmStorage.getFilmById(film2Optional.get().getId());
-        Set<Integer> likesByUsersFilm2 = film2WithLike.getLikesByUsers();
+        assertEquals(1, film2WithLike.getLikeCount());
+        List<Integer> likesByUsersFilm2 = filmStorage.getLikes(film2Optional.get().getId(), 0, 100);
         assertNotNull(likesByUsersFilm2);
         assertEquals(1, likesByUsersFilm2.size());
         assertTrue(likesByUsersFilm2.contains(user1Optional.get().getId()));
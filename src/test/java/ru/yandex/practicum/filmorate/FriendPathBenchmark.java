@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.FriendPaths;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Random;
+
+// Время поиска цепочки рукопожатий на графе из миллиона пользователей.
+// Не входит в обычный прогон тестов, запуск: mvn test -Dtest=FriendPathBenchmark
+class FriendPathBenchmark {
+
+    private static final int USERS = 1_000_000;
+    private static final int FRIENDS_PER_USER = 5;
+    private static final int QUERIES = 1_000;
+
+    @Test
+    void measurePathQueries() {
+        Random random = new Random(42);
+        FriendGraph friendGraph = new FriendGraph(new InMemoryUserStorage());
+        for (int userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                friendGraph.onFriendship(new FriendshipEvent(userId, 1 + random.nextInt(USERS), Operation.ADD));
+            }
+        }
+        long start = System.nanoTime();
+        FriendPaths friendPaths = new FriendPaths(friendGraph);
+        friendPaths.rebuild();
+        System.out.printf("Построение CSR: %d мс%n", (System.nanoTime() - start) / 1_000_000);
+
+        int found = 0;
+        long distances = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int size = friendPaths.find(1 + random.nextInt(USERS), 1 + random.nextInt(USERS), 6).size();
+            if (size > 0) {
+                found++;
+                distances += size - 1;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Цепочки: %d запросов за %d мс, в среднем %.2f мс, найдено %d, средняя длина %.2f%n",
+                QUERIES, nanos / 1_000_000, nanos / 1e6 / QUERIES, found, (double) distances / Math.max(1, found));
+    }
+}
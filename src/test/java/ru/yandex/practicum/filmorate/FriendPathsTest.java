@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.event.UserEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.FriendPaths;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendPathsTest {
+
+    private final FriendGraph friendGraph = new FriendGraph(new InMemoryUserStorage());
+    private final FriendPaths friendPaths = new FriendPaths(friendGraph);
+    private final TestEvents events = new TestEvents(friendGraph, friendPaths);
+
+    @Test
+    void findsShortestChainInEitherDirection() {
+        friend(1, 2);
+        friend(3, 2); // рукопожатие засчитывается, даже если дружба односторонняя
+        friend(3, 4);
+        friend(4, 5);
+        friend(1, 6);
+        friend(6, 5);
+
+        assertEquals(List.of(1, 6, 5), friendPaths.find(1, 5, 6));
+        assertEquals(List.of(5, 6, 1), friendPaths.find(5, 1, 6));
+        assertEquals(List.of(1, 2, 3, 4), friendPaths.find(1, 4, 6));
+        assertEquals(List.of(), friendPaths.find(1, 4, 2));
+        assertEquals(List.of(7), friendPaths.find(7, 7, 6));
+        assertEquals(List.of(), friendPaths.find(1, 7, 6));
+
+        unfriend(6, 5);
+        assertEquals(List.of(1, 2, 3, 4, 5), friendPaths.find(1, 5, 6));
+
+        events.publish(new UserEvent(User.builder().id(3).friends(Map.of()).build(), Operation.UPDATE));
+        assertEquals(List.of(), friendPaths.find(1, 5, 6));
+    }
+
+    @Test
+    void matchesPlainBreadthFirstSearchAcrossRebuilds() {
+        Random random = new Random(3);
+        int users = 2000;
+        for (int i = 0; i < 12_000; i++) {
+            int userId = 1 + random.nextInt(users);
+            int friendId = 1 + random.nextInt(users);
+            if (userId == friendId) {
+                continue;
+            }
+            if (random.nextInt(4) == 0) {
+                unfriend(userId, friendId);
+            } else {
+                friend(userId, friendId);
+            }
+        }
+        Map<Integer, List<Integer>> handshakes = new HashMap<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int otherId = 1; otherId <= users; otherId++) {
+                if (handshake(userId, otherId)) {
+                    handshakes.computeIfAbsent(userId, id -> new ArrayList<>()).add(otherId);
+                }
+            }
+        }
+        for (int i = 0; i < 300; i++) {
+            int from = 1 + random.nextInt(users);
+            int to = 1 + random.nextInt(users);
+            List<Integer> path = friendPaths.find(from, to, 6);
+            int expected = distance(handshakes, from, to);
+            assertEquals(expected > 6 ? -1 : expected, path.size() - 1, from + " -> " + to);
+            for (int j = 1; j < path.size(); j++) {
+                assertTrue(handshake(path.get(j - 1), path.get(j)));
+            }
+        }
+    }
+
+    private static int distance(Map<Integer, List<Integer>> handshakes, int from, int to) {
+        Map<Integer, Integer> distances = new HashMap<>(Map.of(from, 0));
+        Queue<Integer> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            if (node == to) {
+                return distances.get(node);
+            }
+            for (int other : handshakes.getOrDefault(node, List.of())) {
+                if (!distances.containsKey(other)) {
+                    distances.put(other, distances.get(node) + 1);
+                    queue.add(other);
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    private boolean handshake(int userId, int otherId) {
+        return friendGraph.friends(userId).contains(otherId) || friendGraph.friends(otherId).contains(userId);
+    }
+
+    private void friend(int userId, int friendId) {
+        events.friend(userId, friendId);
+    }
+
+    private void unfriend(int userId, int friendId) {
+        events.unfriend(userId, friendId);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.FriendSuggestions;
+import ru.yandex.practicum.filmorate.service.IntArraySet;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FriendSuggestionsTest {
+
+    private final FriendGraph friendGraph = new FriendGraph(new InMemoryUserStorage());
+    private final FriendSuggestions suggestions = new FriendSuggestions(friendGraph);
+    private final TestEvents events = new TestEvents(friendGraph, suggestions);
+
+    @Test
+    void ranksFriendsOfFriendsByMutualFriends() {
+        friends(1, 2, 3, 4);
+        friends(2, 1, 5, 6);
+        friends(3, 5, 6, 7);
+        friends(4, 5, 3);
+
+        assertEquals(List.of(5, 6, 7), suggestions.suggest(1, 10));
+        assertEquals(List.of(5), suggestions.suggest(1, 1));
+        assertEquals(List.of(), suggestions.suggest(8, 10));
+
+        events.friend(1, 5);
+        events.unfriend(3, 7);
+        assertEquals(List.of(6), suggestions.suggest(1, 10));
+    }
+
+    @Test
+    void earlyStopMatchesFullCount() {
+        Random random = new Random(5);
+        for (int userId = 1; userId <= 500; userId++) {
+            int degree = random.nextInt(10) == 0 ? 200 : 1 + random.nextInt(30);
+            for (int i = 0; i < degree; i++) {
+                // небольшая группа популярных пользователей, чтобы у лидеров был заметный отрыв
+                int friendId = random.nextBoolean() ? 1 + random.nextInt(20) : 1 + random.nextInt(500);
+                if (friendId != userId) {
+                    events.friend(userId, friendId);
+                }
+            }
+        }
+        for (int userId = 1; userId <= 500; userId++) {
+            for (int count : new int[]{1, 5, 20}) {
+                assertEquals(bruteForce(userId, count), suggestions.suggest(userId, count), "пользователь " + userId);
+            }
+        }
+    }
+
+    private List<Integer> bruteForce(int userId, int count) {
+        return friendGraph.read(() -> {
+            IntArraySet own = friendGraph.friends(userId);
+            Map<Integer, Integer> mutual = new HashMap<>();
+            for (int i = 0; i < own.size(); i++) {
+                IntArraySet second = friendGraph.friends(own.get(i));
+                for (int j = 0; j < second.size(); j++) {
+                    if (second.get(j) != userId && !own.contains(second.get(j))) {
+                        mutual.merge(second.get(j), 1, Integer::sum);
+                    }
+                }
+            }
+            return mutual.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                    .limit(count)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private void friends(int userId, int... friendIds) {
+        for (int friendId : friendIds) {
+            events.friend(userId, friendId);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Suggestion;
+import ru.yandex.practicum.filmorate.service.PrefixTrie;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixTrieTest {
+
+    private final PrefixTrie trie = new PrefixTrie(2);
+
+    @Test
+    void suggestsMostPopularCompletions() {
+        trie.put(1, "Матрица", 5);
+        trie.put(2, "Матрица: Перезагрузка", 3);
+        trie.put(3, "Мастер и Маргарита", 10);
+        trie.put(4, "Ёлки", 1);
+
+        assertEquals(List.of(3, 1), ids("ма"));
+        assertEquals(List.of(1, 2), ids("МАТ"));
+        assertEquals(List.of(4), ids("ел"));
+        assertEquals(List.of(), ids("терминатор"));
+        assertEquals("Матрица", trie.suggest("матрица", 1).get(0).getText());
+    }
+
+    @Test
+    void updatesCachedTopOnScoreAndTextChanges() {
+        trie.put(1, "alpha", 1);
+        trie.put(2, "alps", 2);
+        trie.put(3, "alto", 3);
+        assertEquals(List.of(3, 2), ids("al"));
+
+        trie.addScore(1, 5);
+        assertEquals(List.of(1, 3), ids("al"));
+        trie.addScore(1, -6);
+        assertEquals(List.of(3, 2), ids("al"));
+
+        trie.rename(3, "beta");
+        assertEquals(List.of(2, 1), ids("al"));
+        assertEquals(List.of(3), ids("b"));
+        assertEquals(List.of(), ids("alt"));
+    }
+
+    private List<Integer> ids(String prefix) {
+        return trie.suggest(prefix, 10).stream()
+                .map(Suggestion::getId)
+                .collect(Collectors.toList());
+    }
+}
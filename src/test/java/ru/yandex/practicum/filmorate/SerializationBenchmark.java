@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Размер ответа и скорость сериализации списков фильмов и пользователей в JSON и CBOR.
+// Не входит в обычный прогон тестов, запуск: mvn test -Dtest=SerializationBenchmark
+class SerializationBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 2_000;
+    private static final int FRIENDS_PER_USER = 50;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void compareJsonAndCbor() throws IOException {
+        Random random = new Random(3);
+        List<Film> films = films(random);
+        List<User> users = users(random);
+        ObjectMapper json = mapper(new JsonFactory());
+        ObjectMapper cbor = mapper(new CBORFactory());
+
+        measure("Фильмы", films, json, cbor);
+        measure("Пользователи", users, json, cbor);
+    }
+
+    private static void measure(String name, Object value, ObjectMapper json, ObjectMapper cbor) throws IOException {
+        for (ObjectMapper mapper : List.of(json, cbor)) {
+            String format = mapper == json ? "JSON" : "CBOR";
+            byte[] bytes = mapper.writeValueAsBytes(value);
+            for (int i = 0; i < ROUNDS; i++) { // прогрев
+                mapper.writeValueAsBytes(value);
+                mapper.readTree(bytes);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                mapper.writeValueAsBytes(value);
+            }
+            long writeNanos = (System.nanoTime() - start) / ROUNDS;
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                mapper.readTree(bytes);
+            }
+            long readNanos = (System.nanoTime() - start) / ROUNDS;
+            System.out.printf("%s, %s: %d КБ, запись %.2f мс, чтение %.2f мс%n",
+                    name, format, bytes.length / 1024, writeNanos / 1e6, readNanos / 1e6);
+        }
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        return new ObjectMapper(factory)
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    private static List<Film> films(Random random) {
+        String[] genreNames = {"Комедия", "Драма", "Мультфильм", "Триллер", "Документальный", "Боевик"};
+        String[] ratingNames = {"G", "PG", "PG-13", "R", "NC-17"};
+        List<Film> films = new ArrayList<>(FILMS);
+        for (int id = 1; id <= FILMS; id++) {
+            Set<Genre> genres = new HashSet<>();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                int genreId = 1 + random.nextInt(genreNames.length);
+                genres.add(Genre.builder().id(genreId).name(genreNames[genreId - 1]).build());
+            }
+            int ratingId = 1 + random.nextInt(ratingNames.length);
+            films.add(Film.builder()
+                    .id(id)
+                    .name("Фильм " + id)
+                    .description("Описание фильма " + id + ", в котором герои снова спасают мир от неминуемой гибели")
+                    .releaseDate(LocalDate.of(1950 + random.nextInt(70), 1 + random.nextInt(12), 1))
+                    .duration(60 + random.nextInt(120))
+                    .likeCount(random.nextInt(10_000))
+                    .genres(genres)
+                    .mpa(Rating.builder().id(ratingId).name(ratingNames[ratingId - 1]).build())
+                    .build());
+        }
+        return films;
+    }
+
+    private static List<User> users(Random random) {
+        List<User> users = new ArrayList<>(USERS);
+        for (int id = 1; id <= USERS; id++) {
+            Map<Integer, Boolean> friends = new HashMap<>();
+            for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                friends.put(1 + random.nextInt(1_000_000), random.nextBoolean());
+            }
+            users.add(User.builder()
+                    .id(id)
+                    .email("user" + id + "@ya.ru")
+                    .login("user" + id)
+                    .name("Пользователь " + id)
+                    .birthday(LocalDate.of(1960 + random.nextInt(45), 1 + random.nextInt(12), 1))
+                    .friends(friends)
+                    .build());
+        }
+        return users;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.FilmEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Rating;
+import ru.yandex.practicum.filmorate.service.LikeGraph;
+import ru.yandex.practicum.filmorate.service.SimilarFilms;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarFilmsTest {
+
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final LikeGraph likeGraph = new LikeGraph(filmStorage);
+    private final SimilarFilms similarFilms = new SimilarFilms(filmStorage, likeGraph);
+    private final TestEvents events = new TestEvents(likeGraph, similarFilms);
+    private int storedFilms;
+
+    @Test
+    void genreOverlapBreaksTies() {
+        film(1, 1, 2);
+        film(2, 3);
+        film(3, 2);
+        film(4, 1);
+        like(1, 1, 2, 3);
+        like(2, 1, 2, 3);
+        like(3, 1, 2, 3);
+        like(4, 1, 2);
+
+        assertEquals(List.of(3, 2, 4), similarFilms.getSimilar(1, 10));
+        assertEquals(List.of(3), similarFilms.getSimilar(1, 1));
+        assertEquals(List.of(), similarFilms.getSimilar(5, 10));
+    }
+
+    @Test
+    void unlikeRemovesFilmFromCandidates() {
+        like(1, 1);
+        like(2, 1);
+        assertEquals(List.of(2), similarFilms.getSimilar(1, 10));
+
+        unlike(2, 1);
+        assertEquals(List.of(), similarFilms.getSimilar(1, 10));
+        assertEquals(List.of(), similarFilms.getSimilar(2, 10));
+    }
+
+    @Test
+    void findsMostFilmsFoundByExactJaccard() {
+        Random random = new Random(11);
+        int films = 300;
+        for (int userId = 1; userId <= 3000; userId++) {
+            int group = random.nextInt(films / 10); // пользователи предпочитают фильмы своей группы
+            for (int i = 0; i < 8; i++) {
+                int filmId = random.nextInt(4) == 0 ? 1 + random.nextInt(films) : 1 + group * 10 + random.nextInt(10);
+                like(filmId, userId);
+            }
+        }
+        for (int userId = 1; userId <= 300; userId++) {
+            unlike(1 + random.nextInt(films), userId);
+        }
+
+        int expected = 0;
+        int found = 0;
+        for (int filmId = 1; filmId <= films; filmId++) {
+            List<Integer> exact = exactTop(filmId, films, 5);
+            List<Integer> approximate = similarFilms.getSimilar(filmId, 5);
+            expected += exact.size();
+            found += (int) exact.stream().filter(approximate::contains).count();
+        }
+        assertTrue(found >= expected * 0.95, "найдено " + found + " из " + expected);
+    }
+
+    private List<Integer> exactTop(int filmId, int films, int count) {
+        return likeGraph.read(() -> IntStream.rangeClosed(1, films)
+                .filter(otherId -> otherId != filmId)
+                .boxed()
+                .filter(otherId -> jaccard(filmId, otherId) >= 0.2)
+                .sorted(Comparator.<Integer>comparingDouble(otherId -> jaccard(filmId, otherId)).reversed())
+                .limit(count)
+                .collect(Collectors.toList()));
+    }
+
+    private double jaccard(int filmId, int otherId) {
+        return SimilarFilms.jaccard(likeGraph.likers(filmId), likeGraph.likers(otherId));
+    }
+
+    private void film(int id, int... genreIds) {
+        Film film = Film.builder()
+                .id(id)
+                .genres(IntStream.of(genreIds)
+                        .mapToObj(genreId -> Genre.builder().id(genreId).build())
+                        .collect(Collectors.toSet()))
+                .build();
+        events.publish(new FilmEvent(film, Operation.ADD));
+    }
+
+    private void like(int filmId, int... userIds) {
+        store(filmId);
+        for (int userId : userIds) {
+            filmStorage.addLike(filmId, userId);
+            events.like(filmId, userId);
+        }
+    }
+
+    private void unlike(int filmId, int userId) {
+        store(filmId);
+        filmStorage.deleteLike(filmId, userId);
+        events.unlike(filmId, userId);
+    }
+
+    // граф лайков сверяет событие с хранилищем, поэтому лайк сначала записывается туда;
+    // фильмы с меньшими id создаются по мере надобности
+    private void store(int filmId) {
+        while (storedFilms < filmId) {
+            filmStorage.create(Film.builder()
+                    .name("Фильм")
+                    .description("")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .mpa(Rating.builder().id(1).build())
+                    .build());
+            storedFilms++;
+        }
+    }
+}
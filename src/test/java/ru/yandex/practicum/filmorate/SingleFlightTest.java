@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.service.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flight.execute("popular", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 42;
+            })));
+            started.await(5, TimeUnit.SECONDS);
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> flight.execute("popular", loads::incrementAndGet)));
+            }
+            // даём присоединившимся вызовам дойти до ожидания
+            while (flight.getStats().get("popular").getCollapsed() < callers - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(callers, flight.getStats().get("popular").getCalls());
+        assertEquals(callers - 1, flight.getStats().get("popular").getCollapsed());
+    }
+
+    @Test
+    void exceptionIsRethrownAndKeyIsReleased() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test");
+        Throwable thrown = catchThrowable(() -> flight.execute(1, () -> {
+            throw new NotFoundException();
+        }));
+        assertThat(thrown).isInstanceOf(NotFoundException.class);
+        assertEquals(7, flight.execute(1, () -> 7));
+    }
+
+    @Test
+    void errorInLoaderReleasesWaitingCallers() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = executor.submit(() -> flight.execute("popular", () -> {
+                started.countDown();
+                await(release);
+                throw new AssertionError("сбой загрузки");
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            Future<Integer> follower = executor.submit(() -> flight.execute("popular", () -> 1));
+            while (flight.getStats().get("popular").getCollapsed() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Throwable leaderError = catchThrowable(() -> leader.get(5, TimeUnit.SECONDS));
+            Throwable followerError = catchThrowable(() -> follower.get(5, TimeUnit.SECONDS));
+            assertThat(leaderError).hasCauseInstanceOf(AssertionError.class);
+            assertThat(followerError).hasCauseInstanceOf(AssertionError.class);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(7, flight.execute("popular", () -> 7));
+    }
+
+    @Test
+    void callWithNewerVersionDoesNotJoinOlderLoad() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>("test");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> old = executor.submit(() -> flight.execute("film", 1, () -> {
+                started.countDown();
+                await(release);
+                return 1;
+            }));
+            started.await(5, TimeUnit.SECONDS);
+            // после записи версия выросла: вызов получает свежие данные, не дожидаясь загрузки до записи
+            assertEquals(2, flight.execute("film", 2, () -> 2));
+            release.countDown();
+            assertEquals(1, old.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, flight.getStats().get("film").getCalls());
+        assertEquals(0, flight.getStats().get("film").getCollapsed());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
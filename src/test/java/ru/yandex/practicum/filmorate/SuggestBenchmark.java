@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.PrefixTrie;
+
+import java.util.Random;
+
+// Пропускная способность подсказок на одном потоке.
+// Не входит в обычный прогон тестов, запуск: mvn test -Dtest=SuggestBenchmark
+class SuggestBenchmark {
+
+    private static final int TITLES = 100_000;
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void measureLookups() {
+        Random random = new Random(42);
+        PrefixTrie trie = new PrefixTrie(10);
+        String[] titles = new String[TITLES];
+        for (int i = 0; i < TITLES; i++) {
+            titles[i] = randomWord(random) + " " + randomWord(random);
+            trie.put(i + 1, titles[i], random.nextInt(1000));
+        }
+        String[] prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String title = titles[random.nextInt(TITLES)];
+            prefixes[i] = title.substring(0, 1 + random.nextInt(Math.min(6, title.length())));
+        }
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            trie.suggest(prefixes[i & 1023], 10);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            trie.suggest(prefixes[i & 1023], 10);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Подсказки: %d запросов за %d мс, %d запросов/с на поток%n",
+                LOOKUPS, nanos / 1_000_000, LOOKUPS * 1_000_000_000L / nanos);
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('а' + random.nextInt(32)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.support.GenericApplicationContext;
+import ru.yandex.practicum.filmorate.event.FriendshipEvent;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+
+import java.time.Instant;
+
+// Доставка событий в тестах так же, как в приложении: через контекст Spring к @EventListener-методам
+// переданных компонентов с учётом их @Order, поэтому графы лайков и дружбы получают событие первыми.
+// Компоненты регистрируются готовыми объектами, @PostConstruct при этом не вызывается
+class TestEvents {
+
+    private final GenericApplicationContext context = new GenericApplicationContext();
+
+    TestEvents(Object... listeners) {
+        AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+        for (int i = 0; i < listeners.length; i++) {
+            context.getBeanFactory().registerSingleton("listener" + i, listeners[i]);
+        }
+        context.refresh();
+    }
+
+    void publish(Object event) {
+        context.publishEvent(event);
+    }
+
+    void like(int filmId, int userId) {
+        publish(new LikeEvent(filmId, userId, Operation.ADD, Instant.now()));
+    }
+
+    void unlike(int filmId, int userId) {
+        publish(new LikeEvent(filmId, userId, Operation.REMOVE, null));
+    }
+
+    void friend(int userId, int friendId) {
+        publish(new FriendshipEvent(userId, friendId, Operation.ADD));
+    }
+
+    void unfriend(int userId, int friendId) {
+        publish(new FriendshipEvent(userId, friendId, Operation.REMOVE));
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.event.LikeEvent;
+import ru.yandex.practicum.filmorate.event.Operation;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrendingFilmsTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2023-01-10T12:00:00Z"));
+    private final TrendingFilms trendingFilms = new TrendingFilms(new InMemoryFilmStorage(), clock);
+
+    @Test
+    void ranksByLikesInsideWindow() {
+        like(1, 1, 1);
+        like(2, 1, 30);
+        like(2, 2, 30);
+        like(3, 1, 0);
+        like(3, 2, 0);
+        like(3, 3, 0);
+
+        assertEquals(List.of(3, 2, 1), trendingFilms.getTrending(Duration.ofDays(7), 10));
+        assertEquals(List.of(3, 1), trendingFilms.getTrending(Duration.ofHours(24), 10));
+        assertEquals(List.of(3), trendingFilms.getTrending(Duration.ofHours(24), 1));
+    }
+
+    @Test
+    void oldBucketsExpireAndUnlikesAreSubtracted() {
+        like(1, 1, 0);
+        like(1, 2, 0);
+        like(2, 1, 0);
+        trendingFilms.onLike(new LikeEvent(1, 2, Operation.REMOVE, clock.instant()));
+
+        clock.advance(Duration.ofHours(5));
+        assertEquals(List.of(1, 2), trendingFilms.getTrending(Duration.ofHours(6), 10));
+        assertEquals(List.of(), trendingFilms.getTrending(Duration.ofHours(5), 10));
+
+        clock.advance(Duration.ofDays(7));
+        assertEquals(List.of(), trendingFilms.getTrending(Duration.ofDays(7), 10));
+    }
+
+    @Test
+    void parseWindow() {
+        assertEquals(Duration.ofHours(24), TrendingFilms.parseWindow("24h"));
+        assertEquals(Duration.ofDays(7), TrendingFilms.parseWindow("7d"));
+        assertThrows(ValidationException.class, () -> TrendingFilms.parseWindow("8d"));
+        assertThrows(ValidationException.class, () -> TrendingFilms.parseWindow("0h"));
+        assertThrows(ValidationException.class, () -> TrendingFilms.parseWindow("week"));
+        assertThrows(ValidationException.class, () -> TrendingFilms.parseWindow("99999999999999999999h"));
+        assertThrows(ValidationException.class, () -> TrendingFilms.parseWindow("9223372036854775807d"));
+    }
+
+    private void like(int filmId, int userId, int hoursAgo) {
+        Instant likedAt = clock.instant().minus(Duration.ofHours(hoursAgo));
+        trendingFilms.onLike(new LikeEvent(filmId, userId, Operation.ADD, likedAt));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.FeedEntry;
+import ru.yandex.practicum.filmorate.model.FeedPage;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.UserFeed;
+import ru.yandex.practicum.filmorate.storage.feed.InMemoryFeedStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserFeedTest {
+
+    private final FriendGraph friendGraph = new FriendGraph(new InMemoryUserStorage());
+    private final UserFeed feed = new UserFeed(new InMemoryFeedStorage(), friendGraph, 2);
+    private final TestEvents events = new TestEvents(friendGraph, feed);
+
+    @Test
+    void showsActionsOfFriendsNewestFirst() {
+        friend(1, 2);
+        friend(1, 3);
+        like(2, 10);
+        like(3, 11);
+        unlike(2, 10);
+        like(4, 12); // 4 не в друзьях у 1
+        friend(2, 4);
+
+        FeedPage page = feed.getFeed(1, null, 10);
+        assertEquals(List.of("2 FRIEND ADD 4", "2 LIKE REMOVE 10", "3 LIKE ADD 11", "2 LIKE ADD 10"),
+                describe(page.getEntries()));
+        assertNull(page.getNextCursor());
+        assertEquals(List.of(), feed.getFeed(4, null, 10).getEntries());
+    }
+
+    @Test
+    void pagesWithCursorAcrossFanOutAndFanOutOnRead() {
+        // у 5 три подписчика при пороге 2, его действия читаются из его собственного буфера
+        friend(1, 5);
+        friend(6, 5);
+        friend(7, 5);
+        friend(1, 2);
+        for (int i = 0; i < 5; i++) {
+            like(2, 100 + i);
+            like(5, 200 + i);
+        }
+
+        List<Integer> films = new ArrayList<>();
+        Long cursor = null;
+        do {
+            FeedPage page = feed.getFeed(1, cursor, 3);
+            page.getEntries().forEach(entry -> films.add(entry.getEntityId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(List.of(204, 104, 203, 103, 202, 102, 201, 101, 200, 100), films);
+        assertEquals(5, feed.getFeed(6, null, 10).getEntries().size());
+    }
+
+    @Test
+    void timelineKeepsOnlyLatestEntries() {
+        friend(1, 2);
+        for (int i = 1; i <= 600; i++) {
+            like(2, i);
+        }
+        List<FeedEntry> entries = feed.getFeed(1, null, 500).getEntries();
+        assertEquals(500, entries.size());
+        assertEquals(600, entries.get(0).getEntityId());
+        assertEquals(101, entries.get(499).getEntityId());
+    }
+
+    private static List<String> describe(List<FeedEntry> entries) {
+        return entries.stream()
+                .map(entry -> entry.getUserId() + " " + entry.getType() + " " + entry.getOperation() + " "
+                        + entry.getEntityId())
+                .collect(Collectors.toList());
+    }
+
+    private void friend(int userId, int friendId) {
+        events.friend(userId, friendId);
+    }
+
+    private void like(int userId, int filmId) {
+        events.like(filmId, userId);
+    }
+
+    private void unlike(int userId, int filmId) {
+        events.unlike(filmId, userId);
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.service.FriendGraph;
+import ru.yandex.practicum.filmorate.service.UserInfluence;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserInfluenceTest {
+
+    private final FriendGraph friendGraph = new FriendGraph(new InMemoryUserStorage());
+    private final UserInfluence influence = new UserInfluence(friendGraph, 1);
+    private final TestEvents events = new TestEvents(friendGraph, influence);
+
+    @Test
+    void ranksUsersAddedByInfluentialUsersHigher() {
+        friend(2, 1);
+        friend(3, 1);
+        friend(4, 1);
+        friend(1, 5);
+        friend(6, 7);
+        influence.refresh();
+
+        // 5 добавил лишь один пользователь, но его самого добавили трое, поэтому 5 влиятельнее и 7, и 1
+        assertEquals(List.of(5, 1, 7), influence.getTop(3));
+        assertTrue(influence.getScore(5) > influence.getScore(7));
+        assertEquals(0, influence.getScore(100));
+        double total = 0;
+        for (int userId = 1; userId <= 7; userId++) {
+            total += influence.getScore(userId);
+        }
+        assertEquals(1, total, 1e-6);
+    }
+
+    @Test
+    void refreshesOnlyAfterGraphChanges() {
+        friend(2, 1);
+        influence.refresh();
+        assertEquals(List.of(1, 2), influence.getTop(10));
+
+        // изменения, о которых оценка влиятельности не узнала, пересчёта не вызывают
+        TestEvents graphOnly = new TestEvents(friendGraph);
+        graphOnly.friend(1, 3);
+        graphOnly.friend(2, 3);
+        influence.refresh();
+        assertEquals(List.of(1, 2), influence.getTop(10));
+
+        events.friend(2, 3);
+        influence.refresh();
+        assertEquals(3, influence.getTop(1).get(0));
+    }
+
+    @Test
+    void failedRefreshIsRetried() {
+        boolean[] fail = {true};
+        FriendGraph failingGraph = new FriendGraph(new InMemoryUserStorage()) {
+            @Override
+            public <T> T read(Supplier<T> action) {
+                if (fail[0]) {
+                    throw new IllegalStateException("граф недоступен");
+                }
+                return super.read(action);
+            }
+        };
+        UserInfluence failing = new UserInfluence(failingGraph, 1);
+        new TestEvents(failingGraph, failing).friend(2, 1);
+
+        assertThrows(IllegalStateException.class, failing::refresh);
+        fail[0] = false;
+        failing.refresh();
+        assertEquals(List.of(1, 2), failing.getTop(10));
+    }
+
+    @Test
+    void parallelIterationMatchesSequential() {
+        Random random = new Random(9);
+        for (int userId = 1; userId <= 20_000; userId++) {
+            for (int i = 0; i < 5; i++) {
+                // половина связей ведёт к небольшой группе популярных пользователей
+                friend(userId, random.nextBoolean() ? 1 + random.nextInt(100) : 1 + random.nextInt(20_000));
+            }
+        }
+        UserInfluence sequential = new UserInfluence(friendGraph, 1);
+        UserInfluence parallel = new UserInfluence(friendGraph, 4);
+        sequential.refresh();
+        parallel.refresh();
+
+        assertEquals(sequential.getTop(50), parallel.getTop(50));
+        for (int userId = 1; userId <= 20_000; userId += 97) {
+            assertEquals(sequential.getScore(userId), parallel.getScore(userId), 1e-9);
+        }
+    }
+
+    private void friend(int userId, int friendId) {
+        if (userId != friendId) {
+            events.friend(userId, friendId);
+        }
+    }
+}